@@ -37,10 +37,21 @@ import com.datastax.driver.core.exceptions.DriverException;
 import com.datastax.driver.core.exceptions.NoHostAvailableException;
 import com.datastax.driver.core.exceptions.QueryExecutionException;
 import com.datastax.driver.core.exceptions.QueryValidationException;
+import com.datastax.driver.core.policies.ConstantSpeculativeExecutionPolicy;
+import com.datastax.driver.core.policies.DCAwareRoundRobinPolicy;
+import com.datastax.driver.core.policies.TokenAwarePolicy;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import org.tango.jhdb.data.HdbData;
 import org.tango.jhdb.data.HdbDataSet;
+import org.tango.jhdb.data.HdbScalarData;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -118,12 +129,26 @@ public class CassandraSchema extends HdbReader {
 
   };
 
-  // Maximum number of asynchronous call launched simultaneously
-  private final static int  MAX_ASYNCH_CALL = 6;
+  // Read profile defaults, overridden by HDB_CASSANDRA_READ_TIMEOUT, HDB_CASSANDRA_CONNECT_TIMEOUT (in ms)
+  // and HDB_CASSANDRA_SPECULATIVE_MAX. Speculative executions are enabled by HDB_CASSANDRA_SPECULATIVE_DELAY
+  // (in ms) and the local data center is given by HDB_CASSANDRA_LOCAL_DC.
+  final static int DEFAULT_READ_TIMEOUT = 12000;
+  final static int DEFAULT_CONNECT_TIMEOUT = 5000;
+  final static int DEFAULT_SPECULATIVE_MAX = 2;
 
-  // Prepared queries for getting data
-  private static HashMap<SignalInfo, PreparedStatement> prepQueries = new HashMap<SignalInfo, PreparedStatement>();
-  private static HashMap<SignalInfo, PreparedStatement> prepQueriesFullPeriod = new HashMap<SignalInfo, PreparedStatement>();
+  // Default number of period queries running simultaneously (HDB_CASSANDRA_PIPELINE_DEPTH)
+  final static int DEFAULT_PIPELINE_DEPTH = 6;
+  private volatile int pipelineDepth;
+
+  // Number of names per att_conf query in getSigInfos(), kept small as IN on
+  // a clustering column is served by a single coordinator
+  private final static int SIGINFO_BATCH_SIZE = 100;
+
+  // Maximum number of prepared queries kept by a reader
+  private final static int MAX_PREPARED_QUERIES = 128;
+
+  // Prepared queries for getting data, by query
+  private final LruCache<String, PreparedStatement> prepQueries = new LruCache<String, PreparedStatement>(MAX_PREPARED_QUERIES);
 
 
   public CassandraSchema(String[] contacts,String db,String user,String passwd) throws HdbFailed {
@@ -165,6 +190,15 @@ public class CassandraSchema extends HdbReader {
         db = DEFAULT_DB_NAME;
     }
 
+    pipelineDepth = Math.max(1, getIntPropertyOrDefault("HDB_CASSANDRA_PIPELINE_DEPTH", DEFAULT_PIPELINE_DEPTH));
+
+    // Read profile
+    String localDc = getPropertyOrDefault("HDB_CASSANDRA_LOCAL_DC", null, null);
+    int readTimeout = getIntPropertyOrDefault("HDB_CASSANDRA_READ_TIMEOUT", DEFAULT_READ_TIMEOUT);
+    int connectTimeout = getIntPropertyOrDefault("HDB_CASSANDRA_CONNECT_TIMEOUT", DEFAULT_CONNECT_TIMEOUT);
+    int speculativeDelay = getIntPropertyOrDefault("HDB_CASSANDRA_SPECULATIVE_DELAY", 0);
+    int speculativeMax = getIntPropertyOrDefault("HDB_CASSANDRA_SPECULATIVE_MAX", DEFAULT_SPECULATIVE_MAX);
+
     //  Build cluster from contact points
     try {
 
@@ -177,6 +211,21 @@ public class CassandraSchema extends HdbReader {
 
       for (String contactPoint : contacts)
         builder.addContactPoint(contactPoint);
+
+      // Partition queries are sent to a replica of the local data center
+      DCAwareRoundRobinPolicy.Builder dcPolicy = DCAwareRoundRobinPolicy.builder();
+      if(localDc!=null)
+        dcPolicy.withLocalDc(localDc);
+      builder.withLoadBalancingPolicy(new TokenAwarePolicy(dcPolicy.build()));
+
+      builder.withSocketOptions(new SocketOptions()
+          .setConnectTimeoutMillis(connectTimeout)
+          .setReadTimeoutMillis(readTimeout));
+
+      // Query another replica if the first one does not answer within the delay
+      if(speculativeDelay>0)
+        builder.withSpeculativeExecutionPolicy(new ConstantSpeculativeExecutionPolicy(speculativeDelay, speculativeMax));
+
       cluster = builder.build();
 
       //  Set protocol
@@ -184,11 +233,6 @@ public class CassandraSchema extends HdbReader {
           .getProtocolOptions()
           .setCompression(ProtocolOptions.Compression.LZ4);
 
-      // Sets the timeout
-      //SocketOptions socketOptions = cluster.getConfiguration().getSocketOptions();
-      //socketOptions.setConnectTimeoutMillis(30000);
-      //socketOptions.setReadTimeoutMillis(30000);
-
       //  Build session on database
       session = cluster.connect(db);
 
@@ -203,74 +247,88 @@ public class CassandraSchema extends HdbReader {
     cluster.close();
   }
 
+  /**
+   * Sets the number of period (partition) queries kept running while extracting a signal
+   * (default is 6, or HDB_CASSANDRA_PIPELINE_DEPTH). Results are decoded in period order
+   * and a new query is launched as soon as a result is taken.
+   * @param depth Number of running queries
+   */
+  public void setPipelineDepth(int depth) {
+    pipelineDepth = Math.max(1, depth);
+  }
+
+  /**
+   * Returns the number of period queries kept running while extracting a signal.
+   */
+  public int getPipelineDepth() {
+    return pipelineDepth;
+  }
+
   private PreparedStatement getPreparedQuery(SignalInfo info, boolean fullPeriod) throws HdbFailed {
+    return prepare(getDataQuery(info, fullPeriod));
+  }
 
-    //int statementIdx = (fullPeriod?2*type+1:2*type);
+  private PreparedStatement prepare(String query) {
 
-    HashMap<SignalInfo, PreparedStatement> preparedQueries;
-    if(fullPeriod)
-    {
-        preparedQueries = prepQueriesFullPeriod;
+    // Prepared queries are shared by concurrent extractions
+    PreparedStatement ret;
+    synchronized (prepQueries) {
+      ret = prepQueries.get(query);
     }
-    else
-    {
-        preparedQueries = prepQueries;
+    if(ret == null) {
+      ret = session.prepare(query);
+      synchronized (prepQueries) {
+        prepQueries.put(query, ret);
+      }
     }
-    
-    if(preparedQueries.containsKey(info))
-        // Query has been already prepared
-        return preparedQueries.get(info);
+    return ret;
+
+  }
+
+  private String getDataQuery(SignalInfo info, boolean fullPeriod) throws HdbFailed {
 
     boolean isRW = info.isRW();
     String rwField = isRW?",value_w":"";
     String tableName = info.tableName;
-    if(!tableName.isEmpty()) {
-
-      String query;
-      if( fullPeriod ) {
-
-        // Full period query
-        if( extraTimestamp ) {
-          query = "SELECT data_time,data_time_us,recv_time,recv_time_us,insert_time,insert_time_us,error_desc,quality,value_r"+rwField+
-          " FROM " + tableName +
-          " WHERE att_conf_id = ?" +
-          " AND period = ?";
-        } else {
-          query = "SELECT data_time,data_time_us,error_desc,quality,value_r"+rwField+
-              " FROM " + tableName +
-              " WHERE att_conf_id = ?" +
-              " AND period = ?";
-        }
+    if(tableName.isEmpty())
+      throw new HdbFailed("Invalid request on a not supported type: type=" + info.dataType + ", format:" + info.format + ", access:" + info.access);
 
+    if( fullPeriod ) {
+
+      // Full period query
+      if( extraTimestamp ) {
+        return "SELECT data_time,data_time_us,recv_time,recv_time_us,insert_time,insert_time_us,error_desc,quality,value_r"+rwField+
+            " FROM " + tableName +
+            " WHERE att_conf_id = ?" +
+            " AND period = ?";
       } else {
+        return "SELECT data_time,data_time_us,error_desc,quality,value_r"+rwField+
+            " FROM " + tableName +
+            " WHERE att_conf_id = ?" +
+            " AND period = ?";
+      }
 
-        // Query for a part of the period
-        if( extraTimestamp ) {
-          query = "SELECT data_time,data_time_us,recv_time,recv_time_us,insert_time,insert_time_us,error_desc,quality,value_r"+rwField+
-          " FROM " + tableName +
-          " WHERE att_conf_id = ?" +
-          " AND period = ?" +
-          " AND data_time >= ?" +
-          " AND data_time <= ?";
-        } else {
-          query = "SELECT data_time,data_time_us,error_desc,quality,value_r"+rwField+
-              " FROM " + tableName +
-              " WHERE att_conf_id = ?" +
-              " AND period = ?" +
-              " AND data_time >= ?" +
-              " AND data_time <= ?";
-        }
+    } else {
 
+      // Query for a part of the period
+      if( extraTimestamp ) {
+        return "SELECT data_time,data_time_us,recv_time,recv_time_us,insert_time,insert_time_us,error_desc,quality,value_r"+rwField+
+            " FROM " + tableName +
+            " WHERE att_conf_id = ?" +
+            " AND period = ?" +
+            " AND data_time >= ?" +
+            " AND data_time <= ?";
+      } else {
+        return "SELECT data_time,data_time_us,error_desc,quality,value_r"+rwField+
+            " FROM " + tableName +
+            " WHERE att_conf_id = ?" +
+            " AND period = ?" +
+            " AND data_time >= ?" +
+            " AND data_time <= ?";
       }
 
-      preparedQueries.put(info, session.prepare(query));
-
-    } else {
-      throw new HdbFailed("Invalid request on a not supported type: type=" + info.dataType + ", format:" + info.format + ", access:" + info.access);
     }
 
-    return preparedQueries.get(info);
-
   }
 
   public String getInfo() throws HdbFailed {
@@ -365,7 +423,7 @@ public class CassandraSchema extends HdbReader {
 
   }
 
-  public HdbSigInfo getSigInfo(String attName) throws HdbFailed {
+  HdbSigInfo getSigInfoFromDB(String attName) throws HdbFailed {
 
     SignalInfo ret = prepareSigInfo(attName);
 
@@ -402,10 +460,59 @@ public class CassandraSchema extends HdbReader {
 
   }
 
-  public HdbDataSet findErrors(String attName,
-                               String start_date,
-                               String stop_date) throws HdbFailed {
-    throw new HdbFailed("Not implemented");
+  // Names are grouped by control system (partition of att_conf) and resolved
+  // by batches of IN queries running concurrently
+  void resolveSigInfos(SignalInfo[] infos) throws HdbFailed {
+
+    // Short name list per control system
+    HashMap<String,HashMap<String,ArrayList<SignalInfo>>> byCs = new HashMap<>();
+    for(SignalInfo info : infos) {
+      String[] fields = info.name.substring(8).split("/");
+      if(fields.length!=5)
+        throw new HdbFailed("Invalid attribute name syntax (eg:tango://hostname:port/domain/family/member/name)");
+      String shortAttName = fields[1] + "/" + fields[2] + "/" + fields[3] + "/" + fields[4];
+      byCs.computeIfAbsent(fields[0], cs -> new HashMap<>())
+          .computeIfAbsent(shortAttName, n -> new ArrayList<>()).add(info);
+    }
+
+    PreparedStatement prep = prepare("SELECT att_name,att_conf_id,data_type FROM att_conf WHERE cs_name=? AND att_name IN ?");
+    ArrayList<ResultSetFuture> futures = new ArrayList<>();
+    ArrayList<HashMap<String,ArrayList<SignalInfo>>> owners = new ArrayList<>();
+
+    try {
+
+      for(Map.Entry<String,HashMap<String,ArrayList<SignalInfo>>> e : byCs.entrySet()) {
+        ArrayList<String> names = new ArrayList<>(e.getValue().keySet());
+        for(int start=0;start<names.size();start+=SIGINFO_BATCH_SIZE) {
+          BoundStatement boundStatement = prep.bind(e.getKey(),
+              names.subList(start, Math.min(names.size(), start + SIGINFO_BATCH_SIZE)));
+          boundStatement.setIdempotent(true);
+          futures.add(session.executeAsync(boundStatement));
+          owners.add(e.getValue());
+        }
+      }
+
+      for(int i=0;i<futures.size();i++) {
+        for(Row row : futures.get(i).getUninterruptibly()) {
+          ArrayList<SignalInfo> list = owners.get(i).get(row.getString(0));
+          if(list==null)
+            continue;
+          String data_type = row.getString(2);
+          for(SignalInfo info : list) {
+            info.sigId = row.getUUID(1).toString();
+            info.setTypeAccessFormatFromName(data_type);
+            info.tableName = "att_" + data_type;
+          }
+        }
+      }
+
+    } catch (DriverException e) {
+      throw new HdbFailed(e.getMessage());
+    } finally {
+      for(ResultSetFuture future : futures)
+        future.cancel(true);
+    }
+
   }
 
   public  HdbSigParam getLastParam(SignalInfo sigInfo) throws HdbFailed {
@@ -524,335 +631,637 @@ public class CassandraSchema extends HdbReader {
                            String start_date,
                            String stop_date) throws HdbFailed {
 
-    String errorStr = null;
-
     if(sigInfo==null)
       throw new HdbFailed("sigInfo input parameters is null");
 
     checkDates(start_date,stop_date);
 
-    boolean isRW = sigInfo.isRW();
-
     // Compute periods according to HDB partitioning
     ArrayList<Period> periods = Period.getPeriods(start_date,stop_date);
     int nbPeriod = periods.size();
 
     ArrayList<HdbData> ret = new ArrayList<HdbData>();
-    ArrayList<Object> value = new ArrayList<Object>();
-    ArrayList<Object> wvalue = new ArrayList<Object>();
+    CassandraCursor cursor = new CassandraCursor(sigInfo, periods, pipelineDepth);
+    try {
+      int nbRead = 0;
+      while (cursor.hasNext()) {
+        ret.add(cursor.next());
+        if (hasProgressListener() && cursor.nbRead != nbRead) {
+          nbRead = cursor.nbRead;
+          fireProgressListener((double) nbRead / nbPeriod);
+        }
+      }
+    } finally {
+      cursor.close();
+    }
+
+    return new HdbDataSet(ret);
+
+  }
 
-    for(int i=0;i<nbPeriod;i+=MAX_ASYNCH_CALL) {
+  HdbDataCursor openCursor(SignalInfo sigInfo,
+                           String start_date,
+                           String stop_date) throws HdbFailed {
 
-      ArrayList<ResultSetFuture> resultSetFutures = new ArrayList<ResultSetFuture>();
+    return new CassandraCursor(sigInfo, Period.getPeriods(start_date, stop_date), pipelineDepth);
 
-      int j;
-      for(j=0;j<MAX_ASYNCH_CALL && j+i<nbPeriod;j++) {
+  }
 
-        // Get prepared statements
-        Period p = periods.get(i+j);
+  // Cursor reading periods in order through a sliding window: up to depth period
+  // queries are running, a new one is launched each time a result is taken.
+  // Rows are fetched by pages. Cancelling the request of the calling thread cancels
+  // the running queries.
+  private class CassandraCursor implements HdbDataCursor {
+
+    private final SignalInfo sigInfo;
+    private final ArrayList<Period> periods;
+    private final int depth;
+    private final boolean isRW;
+    private final ArrayList<Object> value = new ArrayList<Object>();
+    private final ArrayList<Object> wvalue = new ArrayList<Object>();
+    private final ArrayDeque<ResultSetFuture> running = new ArrayDeque<ResultSetFuture>();
+    private int nextPeriod = 0;
+    // Number of periods whose result has been received
+    int nbRead = 0;
+    private ResultSet current = null;
+    private HdbData next = null;
+    private boolean hasData = false;
+    private String errorStr = null;
+    private final HdbRequest request = HdbRequest.current();
+    private final Runnable cancelHandler = this::abort;
+    // error_desc cannot be filtered in CQL, failed rows are dropped while decoding
+    private final boolean skipErrors = isIgnoringErrors();
+
+    CassandraCursor(SignalInfo sigInfo, ArrayList<Period> periods, int depth) {
+      this.sigInfo = sigInfo;
+      this.periods = periods;
+      this.depth = depth;
+      isRW = sigInfo.isRW();
+      if (request != null)
+        request.addCancelHandler(cancelHandler);
+    }
 
-        BoundStatement boundStatement;
+    private void launch() throws HdbFailed {
+      synchronized (running) {
+        if (request != null)
+          request.check();
+        while (running.size() < depth && nextPeriod < periods.size())
+          running.addLast(queryPeriod(sigInfo, periods.get(nextPeriod++)));
+      }
+    }
 
-        if(p.isFull) {
-          boundStatement = getPreparedQuery(sigInfo,p.isFull).bind(
-              UUID.fromString(sigInfo.sigId),
-              p.partitionDate);
-        } else {
-          boundStatement = getPreparedQuery(sigInfo,p.isFull).bind(
-              UUID.fromString(sigInfo.sigId),
-              p.partitionDate,
-              p.start,
-              p.end);
+    // Cancels the running queries, called from the thread cancelling the request
+    private void abort() {
+      synchronized (running) {
+        for (ResultSetFuture future : running)
+          future.cancel(true);
+      }
+    }
+
+    // Returns the result of the next period, null when all periods have been read
+    private ResultSet nextResultSet() throws HdbFailed {
+
+      launch();
+
+      while (true) {
+
+        ResultSetFuture future;
+        synchronized (running) {
+          future = running.pollFirst();
+        }
+        if (future == null)
+          break;
+        launch();
+
+        try {
+          ResultSet rs = future.getUninterruptibly();
+          nbRead++;
+          return rs;
+        } catch (CancellationException e) {
+          throw (request != null) ? request.failure() : new HdbFailed("Query cancelled");
+        } catch (QueryExecutionException e2) {
+          nbRead++;
+          // We may ignore this to work around tombstones.
+          errorStr = "Error (QueryExecution): " + e2.getMessage();
+        } catch (NoHostAvailableException e1) {
+          throw new HdbFailed("Error (NoHostAvailable): " + e1.getMessage());
+        } catch (QueryValidationException e3) {
+          throw new HdbFailed("Error (QueryValidation): " + e3.getMessage());
         }
 
-        // Launch asynchronous calls
-        boundStatement.setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
-        if(sigInfo.isArray())
-          boundStatement.setFetchSize(arrayFetchSize);
-        else
-          boundStatement.setFetchSize(fetchSize);
-        resultSetFutures.add(session.executeAsync(boundStatement));
       }
 
-      // Wait end of result
-      ArrayList<ResultSet> resultSets = new ArrayList<ResultSet>();
+      return null;
+
+    }
+
+    public boolean hasNext() throws HdbFailed {
+
+      if (next == null && request != null)
+        request.check();
 
       try {
-        for(ResultSetFuture sf: resultSetFutures) {
-          try {
-            resultSets.add(sf.getUninterruptibly());
-          } catch (QueryExecutionException e2) {
-            // We may ignore this to work around tombstones.
-            errorStr = "Error (QueryExecution): " + e2.getMessage();
+
+        while (next == null) {
+          if (current != null && !current.isExhausted()) {
+            Row rw = current.one();
+            next = readRow(rw, sigInfo, isRW, value, wvalue);
+            hasData = true;
+            if (skipErrors && next.hasFailed())
+              next = null;
+            if ((current.getAvailableWithoutFetching() == 100) && !current.isFullyFetched())
+              current.fetchMoreResults();
+          } else {
+            current = nextResultSet();
+            if (current == null)
+              break;
           }
         }
-      } catch (NoHostAvailableException e1) {
-        throw new HdbFailed("Error (NoHostAvailable): " + e1.getMessage());
-      } catch (QueryValidationException e3) {
-        throw new HdbFailed("Error (QueryValidation): " + e3.getMessage());
+
+      } catch (DriverException e) {
+        throw new HdbFailed("Failed to get data: " + e.getMessage());
+      }
+
+      if (next == null && !hasData && errorStr != null) {
+        String err = errorStr;
+        errorStr = null;
+        throw new HdbFailed(err);
       }
 
-      if(hasProgressListener())
-        fireProgressListener((double)(i+j)/nbPeriod);
+      return next != null;
+
+    }
+
+    public HdbData next() throws HdbFailed {
+
+      if (!hasNext())
+        throw new HdbFailed("No more data");
+      HdbData ret = next;
+      next = null;
+      return ret;
+
+    }
+
+    public void close() {
+
+      if (request != null)
+        request.removeCancelHandler(cancelHandler);
+      synchronized (running) {
+        for (ResultSetFuture future : running)
+          future.cancel(true);
+        running.clear();
+        nextPeriod = periods.size();
+      }
+      current = null;
+
+    }
+
+  }
+
+  CompletableFuture<HdbDataSet> getDataFromDBAsync(SignalInfo sigInfo,
+                                                   String start_date,
+                                                   String stop_date) {
+
+    Executor executor;
+    ArrayList<Period> periods;
+    try {
+      periods = Period.getPeriods(start_date, stop_date);
+      Executor async = getAsyncExecutor();
+      // Decoding runs on the asynchronous executor, or on the driver thread if it is full
+      executor = r -> {
+        try {
+          async.execute(r);
+        } catch (RejectedExecutionException e) {
+          r.run();
+        }
+      };
+    } catch (HdbFailed e) {
+      return failedFuture(e);
+    }
+
+    AsyncExtraction extraction = new AsyncExtraction(sigInfo, periods, pipelineDepth, executor);
+    extraction.start();
+    return extraction.result;
+
+  }
+
+  // Asynchronous extraction built on the driver futures. Like the cursor, up to depth
+  // period queries are running and results are decoded in period order. Pages are
+  // fetched asynchronously.
+  private class AsyncExtraction {
+
+    private final SignalInfo sigInfo;
+    private final ArrayList<Period> periods;
+    private final int depth;
+    private final Executor executor;
+    private final boolean isRW;
+    private final ArrayList<Object> value = new ArrayList<Object>();
+    private final ArrayList<Object> wvalue = new ArrayList<Object>();
+    private final ArrayDeque<ResultSetFuture> running = new ArrayDeque<ResultSetFuture>();
+    private final ArrayList<HdbData> data = new ArrayList<HdbData>();
+    private int nextPeriod = 0;
+    private String errorStr = null;
+    final CompletableFuture<HdbDataSet> result = new CompletableFuture<HdbDataSet>();
+
+    AsyncExtraction(SignalInfo sigInfo, ArrayList<Period> periods, int depth, Executor executor) {
+      this.sigInfo = sigInfo;
+      this.periods = periods;
+      this.depth = depth;
+      this.executor = executor;
+      isRW = sigInfo.isRW();
+    }
+
+    void start() {
+      result.whenComplete((r, e) -> {
+        if (result.isCancelled())
+          cancel();
+      });
+      nextResult();
+    }
+
+    private synchronized void cancel() {
+      for (ResultSetFuture future : running)
+        future.cancel(true);
+      running.clear();
+    }
+
+    // Waits for the result of the next period
+    private synchronized void nextResult() {
+
+      if (result.isDone())
+        return;
 
-      // Build HdbDataSet
       try {
 
-        for (ResultSet rs : resultSets) {
-          for (Row rw : rs) {
-
-            HdbData hd = HdbData.createData(sigInfo);
-
-            switch (sigInfo.dataType) {
-
-              case BOOLEAN:
-                if(!sigInfo.isArray()) {
-                  if (extraTimestamp) {
-                    setValue(value, rw.getBool(8));
-                    if (isRW) setValue(wvalue, rw.getBool(9));
-                  } else {
-                    setValue(value, rw.getBool(4));
-                    if (isRW) setValue(wvalue, rw.getBool(5));
-                  }
-                }
-                else {
-                  if (extraTimestamp) {
-                    setValueBoolean(value, rw.getList(8, Boolean.class));
-                    if (isRW) setValueBoolean(wvalue, rw.getList(9, Boolean.class));
-                  } else {
-                    setValueBoolean(value, rw.getList(4, Boolean.class));
-                    if (isRW) setValueBoolean(wvalue, rw.getList(5, Boolean.class));
-                  }
-                }
-                break;
-
-              case SHORT:
-              case UCHAR:
-                if(!sigInfo.isArray()) {
-                  if (extraTimestamp) {
-                    setValue(value, (short) rw.getInt(8));
-                    if (isRW) setValue(wvalue, (short) rw.getInt(9));
-                  } else {
-                    setValue(value, (short) rw.getInt(4));
-                    if (isRW) setValue(wvalue, (short) rw.getInt(5));
-                  }
-                }
-                else {
-                    if (extraTimestamp) {
-                      setValueShort(value, rw.getList(8, Integer.class));
-                      if (isRW) setValueShort(wvalue, rw.getList(9, Integer.class));
-                    } else {
-                      setValueShort(value, rw.getList(4, Integer.class));
-                      if (isRW) setValueShort(wvalue, rw.getList(5, Integer.class));
-                    }
-                }
-                break;
-
-              case LONG:
-              case USHORT:
-              case STATE:
-                if(!sigInfo.isArray()) {
-
-                  if (extraTimestamp) {
-                    setValue(value, rw.getInt(8));
-                    if (isRW) setValue(wvalue, rw.getInt(9));
-                  } else {
-                    setValue(value, rw.getInt(4));
-                    if (isRW) setValue(wvalue, rw.getInt(5));
-                  }
-                }
-                else {
-                    if (extraTimestamp) {
-                      setValueInteger(value, rw.getList(8, Integer.class));
-                      if (isRW) setValueInteger(wvalue, rw.getList(9, Integer.class));
-                    } else {
-                      setValueInteger(value, rw.getList(4, Integer.class));
-                      if (isRW) setValueInteger(wvalue, rw.getList(5, Integer.class));
-                    }
-                }
-                break;
-
-              case LONG64:
-              case ULONG:
-                if(!sigInfo.isArray()) {
-                  if (extraTimestamp) {
-                    setValue(value, rw.getLong(8));
-                    if (isRW) setValue(wvalue, rw.getLong(9));
-                  } else {
-                    setValue(value, rw.getLong(4));
-                    if (isRW) setValue(wvalue, rw.getLong(5));
-                  }
-                }
-                else {
-                    if (extraTimestamp) {
-                      setValueLong(value, rw.getList(8, Long.class));
-                      if (isRW) setValueLong(wvalue, rw.getList(9, Long.class));
-                    } else {
-                      setValueLong(value, rw.getList(4, Long.class));
-                      if (isRW) setValueLong(wvalue, rw.getList(5, Long.class));
-                    }
-                }
-                break;
-
-              case DOUBLE:
-                if(!sigInfo.isArray()) {
-                  if (extraTimestamp) {
-                    setValue(value, rw.getDouble(8));
-                    if (isRW) setValue(wvalue, rw.getDouble(9));
-                  } else {
-                    setValue(value, rw.getDouble(4));
-                    if (isRW) setValue(wvalue, rw.getDouble(5));
-                  }
-                }
-                else {
-                    if (extraTimestamp) {
-                      setValueDouble(value, rw.getList(8, Double.class));
-                      if (isRW) setValueDouble(wvalue, rw.getList(9, Double.class));
-                    } else {
-                      setValueDouble(value, rw.getList(4, Double.class));
-                      if (isRW) setValueDouble(wvalue, rw.getList(5, Double.class));
-                    }
-                }
-                break;
-
-              case FLOAT:
-                if(!sigInfo.isArray()) {
-                  if (extraTimestamp) {
-                    setValue(value, rw.getFloat(8));
-                    if (isRW) setValue(wvalue, rw.getFloat(9));
-                  } else {
-                    setValue(value, rw.getFloat(4));
-                    if (isRW) setValue(wvalue, rw.getFloat(5));
-                  }
-                }
-                else {
-                    if (extraTimestamp) {
-                      setValueFloat(value, rw.getList(8, Float.class));
-                      if (isRW) setValueFloat(wvalue, rw.getList(9, Float.class));
-                    } else {
-                      setValueFloat(value, rw.getList(4, Float.class));
-                      if (isRW) setValueFloat(wvalue, rw.getList(5, Float.class));
-                    }
-                }
-                break;
-
-              case STRING:
-                if(!sigInfo.isArray()) {
-                  if (extraTimestamp) {
-                    setValue(value, rw.getString(8));
-                    if (isRW) setValue(wvalue, rw.getString(9));
-                  } else {
-                    setValue(value, rw.getString(4));
-                    if (isRW) setValue(wvalue, rw.getString(5));
-                  }
-                }
-                else {
-                    if (extraTimestamp) {
-                      setValueString(value, rw.getList(8, String.class));
-                      if (isRW) setValueString(wvalue, rw.getList(9, String.class));
-                    } else {
-                      setValueString(value, rw.getList(4, String.class));
-                      if (isRW) setValueString(wvalue, rw.getList(5, String.class));
-                    }
-                }
-                break;
-
-            }
-
-            if(extraTimestamp) {
-              hd.parse(
-                timeValue(rw.getTimestamp(0), rw.getInt(1)), //Tango timestamp
-                timeValue(rw.getTimestamp(2), rw.getInt(3)), //Event receive timestamp
-                timeValue(rw.getTimestamp(4), rw.getInt(5)), //Recording timestamp
-                rw.getString(6),                   // Error string
-                rw.getInt(7),                      // Quality value
-                value,                             // Read value
-                wvalue                             // Write value
-              );
-            } else {
-              hd.parse(
-                  timeValue(rw.getTimestamp(0), rw.getInt(1)), //Tango timestamp
-                  0,                                           //Event receive timestamp
-                  0,                                           //Recording timestamp
-                  rw.getString(2),                   // Error string
-                  rw.getInt(3),                      // Quality value
-                  value,                             // Read value
-                  wvalue                             // Write value
-              );
-            }
-            ret.add(hd);
-            if(( rs.getAvailableWithoutFetching() == 100) && !rs.isFullyFetched()) {
-              rs.fetchMoreResults();
-            }
+        while (running.size() < depth && nextPeriod < periods.size())
+          running.addLast(queryPeriod(sigInfo, periods.get(nextPeriod++)));
+
+        ResultSetFuture future = running.pollFirst();
+        if (future == null) {
+          if (data.isEmpty() && errorStr != null) {
+            result.completeExceptionally(new HdbFailed(errorStr));
+          } else {
+            HdbDataSet ret = new HdbDataSet(data);
+            ret.setSigInfo(sigInfo);
+            result.complete(ret);
           }
+          return;
+        }
+
+        if (nextPeriod < periods.size())
+          running.addLast(queryPeriod(sigInfo, periods.get(nextPeriod++)));
+        whenDone(future, true);
+
+      } catch (HdbFailed e) {
+        result.completeExceptionally(e);
+      }
+
+    }
+
+    private void whenDone(ListenableFuture<ResultSet> future, final boolean newPeriod) {
+
+      Futures.addCallback(future, new FutureCallback<ResultSet>() {
+        public void onSuccess(ResultSet rs) {
+          readPage(rs);
         }
+        public void onFailure(Throwable t) {
+          failed(t, newPeriod);
+        }
+      }, executor);
 
+    }
+
+    // Decodes the rows already fetched, then fetches the next page or the next period
+    private synchronized void readPage(ResultSet rs) {
+
+      if (result.isDone())
+        return;
+
+      try {
+        for (int n = rs.getAvailableWithoutFetching(); n > 0; n--)
+          data.add(readRow(rs.one(), sigInfo, isRW, value, wvalue));
+        if (rs.isFullyFetched())
+          nextResult();
+        else
+          whenDone(rs.fetchMoreResults(), false);
+      } catch (HdbFailed e) {
+        result.completeExceptionally(e);
       } catch (DriverException e) {
-        throw new HdbFailed("Failed to get data: " + e.getMessage());
+        result.completeExceptionally(new HdbFailed("Failed to get data: " + e.getMessage()));
       }
 
     }
 
-    if(ret.size()==0 && errorStr!=null)
-      throw new HdbFailed(errorStr);
+    private synchronized void failed(Throwable t, boolean newPeriod) {
 
-    return new HdbDataSet(ret);
+      if (result.isDone())
+        return;
+
+      if (newPeriod && t instanceof QueryExecutionException) {
+        // We may ignore this to work around tombstones.
+        errorStr = "Error (QueryExecution): " + t.getMessage();
+        nextResult();
+      } else if (t instanceof NoHostAvailableException) {
+        result.completeExceptionally(new HdbFailed("Error (NoHostAvailable): " + t.getMessage()));
+      } else if (t instanceof QueryValidationException) {
+        result.completeExceptionally(new HdbFailed("Error (QueryValidation): " + t.getMessage()));
+      } else {
+        result.completeExceptionally(new HdbFailed("Failed to get data: " + t.getMessage()));
+      }
+
+    }
 
   }
 
-  private void setValue(ArrayList<Object> value,double d) {
-    value.clear();
-    value.add(d);
+  // Launches the asynchronous query of a period
+  private ResultSetFuture queryPeriod(SignalInfo sigInfo, Period p) throws HdbFailed {
+
+    BoundStatement boundStatement;
+
+    if(p.isFull) {
+      boundStatement = getPreparedQuery(sigInfo,p.isFull).bind(
+          UUID.fromString(sigInfo.sigId),
+          p.partitionDate);
+    } else {
+      boundStatement = getPreparedQuery(sigInfo,p.isFull).bind(
+          UUID.fromString(sigInfo.sigId),
+          p.partitionDate,
+          p.start,
+          p.end);
+    }
+
+    boundStatement.setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
+    // Reads can be retried or speculatively executed
+    boundStatement.setIdempotent(true);
+    if(sigInfo.isArray())
+      boundStatement.setFetchSize(arrayFetchSize);
+    else
+      boundStatement.setFetchSize(fetchSize);
+    return session.executeAsync(boundStatement);
+
   }
 
-  private void setValueDouble(ArrayList<Object> value,List<Double> d) {
-    value.clear();
-    value.addAll(d);
+  // Error scan, only the header columns are read. error_desc cannot be filtered in CQL,
+  // failed rows are selected on the client. The period queries of all signals are
+  // launched through the same sliding window.
+  HdbDataSet[] findErrorsFromDB(SignalInfo[] sigInfos,
+                                String start_date,
+                                String stop_date) throws HdbFailed {
+
+    ArrayList<Period> periods = Period.getPeriods(start_date, stop_date);
+    int nbPeriod = periods.size();
+    int nbQuery = sigInfos.length * nbPeriod;
+    HdbDataSet[] ret = new HdbDataSet[sigInfos.length];
+    for(int i=0;i<ret.length;i++)
+      ret[i] = new HdbDataSet();
+
+    ArrayDeque<ResultSetFuture> running = new ArrayDeque<ResultSetFuture>();
+    HdbRequest request = HdbRequest.current();
+    Runnable cancelHandler = () -> {
+      synchronized (running) {
+        for (ResultSetFuture future : running)
+          future.cancel(true);
+      }
+    };
+    if(request != null)
+      request.addCancelHandler(cancelHandler);
+
+    int nextQuery = 0;
+    try {
+
+      for(int q=0;q<nbQuery;q++) {
+
+        ResultSetFuture future;
+        synchronized (running) {
+          if (request != null)
+            request.check();
+          while (running.size() < pipelineDepth && nextQuery < nbQuery) {
+            running.addLast(queryErrors(sigInfos[nextQuery / nbPeriod], periods.get(nextQuery % nbPeriod)));
+            nextQuery++;
+          }
+          future = running.pollFirst();
+        }
+
+        SignalInfo sigInfo = sigInfos[q / nbPeriod];
+        for (Row rw : future.getUninterruptibly()) {
+          String errorMsg = rw.getString(2);
+          if (errorMsg == null || errorMsg.isEmpty())
+            continue;
+          HdbData hd = HdbData.createData(sigInfo);
+          hd.parseHeader(timeValue(rw.getTimestamp(0), rw.getInt(1)), 0, 0, errorMsg, rw.getInt(3));
+          ret[q / nbPeriod].add(hd);
+        }
+
+      }
+
+    } catch (CancellationException e) {
+      throw (request != null) ? request.failure() : new HdbFailed("Query cancelled");
+    } catch (DriverException e) {
+      throw new HdbFailed("Failed to get errors: " + e.getMessage());
+    } finally {
+      if(request != null)
+        request.removeCancelHandler(cancelHandler);
+      synchronized (running) {
+        for (ResultSetFuture future : running)
+          future.cancel(true);
+        running.clear();
+      }
+    }
+
+    return ret;
+
   }
 
-  private void setValue(ArrayList<Object> value,float d) {
-    value.clear();
-    value.add(d);
+  // Launches the asynchronous header query of a period
+  private ResultSetFuture queryErrors(SignalInfo sigInfo, Period p) throws HdbFailed {
+
+    if(sigInfo.tableName.isEmpty())
+      throw new HdbFailed("Invalid request on a not supported type: type=" + sigInfo.dataType + ", format:" + sigInfo.format + ", access:" + sigInfo.access);
+
+    String query = "SELECT data_time,data_time_us,error_desc,quality" +
+        " FROM " + sigInfo.tableName +
+        " WHERE att_conf_id = ?" +
+        " AND period = ?";
+
+    BoundStatement boundStatement;
+    if(p.isFull) {
+      boundStatement = prepare(query).bind(
+          UUID.fromString(sigInfo.sigId),
+          p.partitionDate);
+    } else {
+      boundStatement = prepare(query + " AND data_time >= ? AND data_time <= ?").bind(
+          UUID.fromString(sigInfo.sigId),
+          p.partitionDate,
+          p.start,
+          p.end);
+    }
+
+    boundStatement.setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
+    boundStatement.setIdempotent(true);
+    boundStatement.setFetchSize(fetchSize);
+    return session.executeAsync(boundStatement);
+
   }
 
-  private void setValueFloat(ArrayList<Object> value,List<Float> d) {
-    value.clear();
-    value.addAll(d);
+  // Decodes a data row
+  private HdbData readRow(Row rw, SignalInfo sigInfo, boolean isRW,
+                          ArrayList<Object> value, ArrayList<Object> wvalue) throws HdbFailed {
+
+    // Value columns
+    int r = extraTimestamp ? 8 : 4;
+    int w = r + 1;
+
+    if(!sigInfo.isArray())
+      return readScalarRow(rw, sigInfo, isRW, r, w);
+
+    HdbData hd = HdbData.createData(sigInfo);
+
+    switch (sigInfo.dataType) {
+
+      case BOOLEAN:
+        setValueBoolean(value, rw.getList(r, Boolean.class));
+        if (isRW) setValueBoolean(wvalue, rw.getList(w, Boolean.class));
+        break;
+
+      case SHORT:
+      case UCHAR:
+        setValueShort(value, rw.getList(r, Integer.class));
+        if (isRW) setValueShort(wvalue, rw.getList(w, Integer.class));
+        break;
+
+      case LONG:
+      case USHORT:
+      case STATE:
+        setValueInteger(value, rw.getList(r, Integer.class));
+        if (isRW) setValueInteger(wvalue, rw.getList(w, Integer.class));
+        break;
+
+      case LONG64:
+      case ULONG:
+        setValueLong(value, rw.getList(r, Long.class));
+        if (isRW) setValueLong(wvalue, rw.getList(w, Long.class));
+        break;
+
+      case DOUBLE:
+        setValueDouble(value, rw.getList(r, Double.class));
+        if (isRW) setValueDouble(wvalue, rw.getList(w, Double.class));
+        break;
+
+      case FLOAT:
+        setValueFloat(value, rw.getList(r, Float.class));
+        if (isRW) setValueFloat(wvalue, rw.getList(w, Float.class));
+        break;
+
+      case STRING:
+        setValueString(value, rw.getList(r, String.class));
+        if (isRW) setValueString(wvalue, rw.getList(w, String.class));
+        break;
+
+    }
+
+    parseHeader(rw, hd);
+    if(!hd.hasFailed()) {
+      hd.parseValue(value);
+      hd.parseWriteValue(wvalue.isEmpty() ? null : wvalue);
+    }
+    return hd;
+
   }
 
-  private void setValue(ArrayList<Object> value,boolean b) {
-    value.clear();
-    value.add(b);
+  // Scalar values are given to the typed setters (no boxing)
+  private HdbData readScalarRow(Row rw, SignalInfo sigInfo, boolean isRW, int r, int w) throws HdbFailed {
+
+    HdbScalarData hd = (HdbScalarData)HdbData.createData(sigInfo);
+    parseHeader(rw, hd);
+    if(hd.hasFailed())
+      return hd;
+
+    switch (sigInfo.dataType) {
+
+      case BOOLEAN:
+        hd.setBoolean(rw.getBool(r), isRW && rw.getBool(w));
+        break;
+
+      case SHORT:
+      case UCHAR:
+        hd.setLong((short) rw.getInt(r), isRW ? (short) rw.getInt(w) : 0);
+        break;
+
+      case LONG:
+      case USHORT:
+      case STATE:
+        hd.setLong(rw.getInt(r), isRW ? rw.getInt(w) : 0);
+        break;
+
+      case LONG64:
+      case ULONG:
+        hd.setLong(rw.getLong(r), isRW ? rw.getLong(w) : 0);
+        break;
+
+      case DOUBLE:
+        hd.setDouble(rw.getDouble(r), isRW ? rw.getDouble(w) : Double.NaN);
+        break;
+
+      case FLOAT:
+        hd.setDouble(rw.getFloat(r), isRW ? rw.getFloat(w) : Double.NaN);
+        break;
+
+      case STRING:
+        hd.setString(rw.getString(r), isRW ? rw.getString(w) : null);
+        break;
+
+    }
+
+    return hd;
+
   }
 
-  private void setValueBoolean(ArrayList<Object> value,List<Boolean> b) {
-    value.clear();
-    value.addAll(b);
+  // Timestamps, error and quality
+  private void parseHeader(Row rw, HdbData hd) {
+
+    if(extraTimestamp) {
+      hd.parseHeader(
+        timeValue(rw.getTimestamp(0), rw.getInt(1)), //Tango timestamp
+        timeValue(rw.getTimestamp(2), rw.getInt(3)), //Event receive timestamp
+        timeValue(rw.getTimestamp(4), rw.getInt(5)), //Recording timestamp
+        rw.getString(6),                   // Error string
+        rw.getInt(7)                       // Quality value
+      );
+    } else {
+      hd.parseHeader(
+          timeValue(rw.getTimestamp(0), rw.getInt(1)), //Tango timestamp
+          0,                                           //Event receive timestamp
+          0,                                           //Recording timestamp
+          rw.getString(2),                   // Error string
+          rw.getInt(3)                       // Quality value
+      );
+    }
+
   }
 
-  private void setValue(ArrayList<Object> value,int i) {
+  private void setValueDouble(ArrayList<Object> value,List<Double> d) {
     value.clear();
-    value.add(i);
+    value.addAll(d);
   }
 
-  private void setValueInteger(ArrayList<Object> value,List<Integer> d) {
+  private void setValueFloat(ArrayList<Object> value,List<Float> d) {
     value.clear();
     value.addAll(d);
   }
 
-  private void setValue(ArrayList<Object> value,long l) {
+  private void setValueBoolean(ArrayList<Object> value,List<Boolean> b) {
     value.clear();
-    value.add(l);
+    value.addAll(b);
   }
 
-  private void setValueLong(ArrayList<Object> value,List<Long> l) {
+  private void setValueInteger(ArrayList<Object> value,List<Integer> d) {
     value.clear();
-    value.addAll(l);
+    value.addAll(d);
   }
 
-  private void setValue(ArrayList<Object> value,short s) {
+  private void setValueLong(ArrayList<Object> value,List<Long> l) {
     value.clear();
-    value.add(s);
+    value.addAll(l);
   }
 
   private void setValueShort(ArrayList<Object> value,List<Integer> d) {
@@ -861,16 +1270,23 @@ public class CassandraSchema extends HdbReader {
       value.add(d.get(i).shortValue());
   }
 
-  private void setValue(ArrayList<Object> value,String s) {
-    value.clear();
-    value.add(s);
-  }
-
   private void setValueString(ArrayList<Object> value,List<String> d) {
     value.clear();
     value.addAll(d);
   }
 
+  @Override
+  public boolean isFeatureSupported(Feature feat)
+  {
+    switch(feat)
+    {
+      case CONCURRENT_EXTRACTION:
+        return true;
+      default:
+        return false;
+    }
+  }
+
   private long timeValue(Date t,int us) {
 
     long ret = t.getTime();
@@ -0,0 +1,572 @@
+//+======================================================================
+// $Source: $
+//
+// Project:   Tango
+//
+// Description:  java source code for HDB extraction library.
+//
+// $Author: pons $
+//
+// Copyright (C) :      2015
+//						European Synchrotron Radiation Facility
+//                      BP 220, Grenoble 38043
+//                      FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision $
+//
+//-======================================================================
+package org.tango.jhdb;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JDBC connection pool shared by the SQL readers.
+ * Idle connections are validated by a background keep-alive task, so borrowing
+ * a connection does not cost any round trip. Idle connections above the minimum
+ * size are closed after the idle timeout.
+ */
+class ConnectionPool {
+
+  /**
+   * Work done with a connection borrowed from the pool.
+   * A task may be run a second time on a new connection if the first one
+   * breaks, it must not keep any state from a failed run.
+   */
+  interface Task<T> {
+    T run(Connection c) throws SQLException, HdbFailed;
+  }
+
+  private static class Entry {
+
+    Connection connection;
+    long lastUsed;
+    // Last successful validation by the keep-alive task
+    long lastValidated;
+    // Prepared statements of this connection, by query (created on first use)
+    LruCache<String, PreparedStatement> statements = null;
+
+    Entry(Connection connection) {
+      this.connection = connection;
+      lastUsed = System.currentTimeMillis();
+      lastValidated = lastUsed;
+    }
+
+  }
+
+  // Default sizes, overridden by HDB_POOL_MIN_SIZE, HDB_POOL_MAX_SIZE, HDB_POOL_IDLE_TIMEOUT (in seconds)
+  // HDB_POOL_KEEPALIVE (in seconds, 0 to disable) and HDB_POOL_STATEMENT_CACHE (statements per connection)
+  final static int DEFAULT_MIN_SIZE = 1;
+  final static int DEFAULT_MAX_SIZE = 8;
+  final static int DEFAULT_IDLE_TIMEOUT = 300;
+  final static int DEFAULT_KEEPALIVE = 30;
+  final static int DEFAULT_STATEMENT_CACHE = 32;
+
+  // Validation timeout (in seconds)
+  private final static int VALIDATION_TIMEOUT = 5;
+  // Maximum time to wait for a free connection (in milliseconds)
+  private final static long BORROW_TIMEOUT = 60000;
+
+  private final String url;
+  private final Properties properties;
+  private final int minSize;
+  private final int maxSize;
+  private final long idleTimeout;
+  private final long keepAlive;
+  private final int statementCacheSize;
+  private ScheduledExecutorService scheduler = null;
+
+  // Most recently used connection first
+  private final ArrayDeque<Entry> idle = new ArrayDeque<Entry>();
+  private final IdentityHashMap<Connection, Entry> inUse = new IdentityHashMap<Connection, Entry>();
+  // Number of opened (or being opened) connections
+  private int size = 0;
+  private boolean closed = false;
+
+  /**
+   * Creates a pool and opens the minimum number of connections.
+   * @param url JDBC url
+   * @param properties Connection properties
+   * @param minSize Number of connections kept opened
+   * @param maxSize Maximum number of opened connections
+   * @param idleTimeout Time (in milliseconds) after which an idle connection above minSize is closed
+   * @param keepAlive Period (in milliseconds) of the idle connection validation (0 to disable)
+   * @param statementCacheSize Maximum number of prepared statements kept per connection
+   * @throws SQLException in case of failure
+   */
+  ConnectionPool(String url, Properties properties, int minSize, int maxSize, long idleTimeout, long keepAlive,
+                 int statementCacheSize) throws SQLException {
+
+    this.url = url;
+    this.properties = properties;
+    this.maxSize = Math.max(1, maxSize);
+    this.minSize = Math.max(0, Math.min(minSize, this.maxSize));
+    this.idleTimeout = idleTimeout;
+    this.keepAlive = keepAlive;
+    this.statementCacheSize = statementCacheSize;
+
+    for (int i = 0; i < this.minSize; i++) {
+      idle.addLast(new Entry(DriverManager.getConnection(url, properties)));
+      size++;
+    }
+
+    if (keepAlive > 0) {
+      scheduler = Executors.newSingleThreadScheduledExecutor(HdbReader.daemonThreadFactory("HdbPool-keepalive"));
+      scheduler.scheduleWithFixedDelay(this::keepAlive, keepAlive, keepAlive, TimeUnit.MILLISECONDS);
+    }
+
+  }
+
+  /**
+   * Creates a pool configured by the HDB_POOL_MIN_SIZE, HDB_POOL_MAX_SIZE, HDB_POOL_IDLE_TIMEOUT,
+   * HDB_POOL_KEEPALIVE and HDB_POOL_STATEMENT_CACHE variables.
+   * @param url JDBC url
+   * @param properties Connection properties
+   * @throws SQLException in case of connection failure
+   * @throws HdbFailed in case of wrong variable value
+   */
+  static ConnectionPool create(String url, Properties properties) throws SQLException, HdbFailed {
+
+    int min = HdbReader.getIntPropertyOrDefault("HDB_POOL_MIN_SIZE", DEFAULT_MIN_SIZE);
+    int max = HdbReader.getIntPropertyOrDefault("HDB_POOL_MAX_SIZE", DEFAULT_MAX_SIZE);
+    int idle = HdbReader.getIntPropertyOrDefault("HDB_POOL_IDLE_TIMEOUT", DEFAULT_IDLE_TIMEOUT);
+    int keepAlive = HdbReader.getIntPropertyOrDefault("HDB_POOL_KEEPALIVE", DEFAULT_KEEPALIVE);
+    int statements = HdbReader.getIntPropertyOrDefault("HDB_POOL_STATEMENT_CACHE", DEFAULT_STATEMENT_CACHE);
+    return new ConnectionPool(url, properties, min, max, idle * 1000L, keepAlive * 1000L, statements);
+
+  }
+
+  /**
+   * Executes the given task with a connection of the pool.
+   * The connection is given back to the pool when the task ends, or closed if it is broken.
+   * If the connection breaks, idle connections are validated and the task is run once
+   * again on a valid or new connection.
+   * @param task Task to be executed
+   */
+  <T> T execute(Task<T> task) throws SQLException, HdbFailed {
+
+    int retry = 1;
+
+    while (true) {
+
+      Connection c = borrow();
+      boolean broken = true;
+      try {
+        T ret = task.run(c);
+        broken = false;
+        return ret;
+      } catch (SQLException e) {
+        broken = isBroken(c, e);
+        if (!broken || retry == 0)
+          throw e;
+        retry--;
+        System.out.println("Reconnecting to " + url);
+      } catch (HdbFailed | RuntimeException e) {
+        broken = false;
+        throw e;
+      } finally {
+        if (broken)
+          invalidate(c);
+        else
+          release(c);
+      }
+
+      // Other idle connections are likely broken for the same reason (eg: server restart)
+      validateIdle();
+
+    }
+
+  }
+
+  /**
+   * Borrows a connection from the pool, waits for a free connection
+   * if the maximum number of connections is reached.
+   */
+  Connection borrow() throws SQLException {
+
+    long deadline = System.currentTimeMillis() + BORROW_TIMEOUT;
+
+    while (true) {
+
+      Entry e = null;
+      boolean open = false;
+      // Evicted connections are closed outside the lock
+      ArrayList<Connection> evicted = new ArrayList<Connection>();
+
+      try {
+
+        synchronized (this) {
+
+          while (e == null && !open) {
+
+            if (closed)
+              throw new SQLException("Connection pool closed");
+
+            evicted.addAll(evictIdle());
+
+            e = idle.pollFirst();
+            if (e == null) {
+              if (size < maxSize) {
+                size++;
+                open = true;
+              } else {
+                long toWait = deadline - System.currentTimeMillis();
+                if (toWait <= 0)
+                  throw new SQLException("Timeout while waiting for a free connection (" + maxSize + " in use)");
+                try {
+                  wait(toWait);
+                } catch (InterruptedException ex) {
+                  Thread.currentThread().interrupt();
+                  throw new SQLException("Interrupted while waiting for a free connection");
+                }
+              }
+            }
+
+          }
+
+        }
+
+      } finally {
+        closeConnections(evicted);
+      }
+
+      if (open) {
+
+        // Open a new connection (outside the lock)
+        Connection c;
+        try {
+          c = DriverManager.getConnection(url, properties);
+        } catch (SQLException ex) {
+          synchronized (this) {
+            size--;
+            notifyAll();
+          }
+          throw ex;
+        }
+        e = new Entry(c);
+
+      } else if (isClosed(e.connection)) {
+
+        // Closed by the driver, try another one
+        synchronized (this) {
+          size--;
+          notifyAll();
+        }
+        continue;
+
+      }
+
+      synchronized (this) {
+        inUse.put(e.connection, e);
+      }
+      return e.connection;
+
+    }
+
+  }
+
+  /**
+   * Returns a prepared statement of a borrowed connection for the given query.
+   * Statements are cached per connection, the least recently used one is closed
+   * when the cache is full. A cached statement must not be closed by the caller,
+   * only its result set. It is closed with its connection.
+   * @param c Connection borrowed from this pool
+   * @param query SQL query
+   */
+  PreparedStatement prepare(Connection c, String query) throws SQLException {
+
+    Entry e;
+    synchronized (this) {
+      e = inUse.get(c);
+    }
+    if (e == null)
+      throw new SQLException("Connection not borrowed from the pool");
+
+    // Only the borrower uses the statements of a connection
+    if (e.statements == null) {
+      e.statements = new LruCache<String, PreparedStatement>(statementCacheSize) {
+        private static final long serialVersionUID = 1L;
+        void evicted(PreparedStatement statement) {
+          closeQuietly(statement);
+        }
+      };
+    }
+
+    PreparedStatement statement = e.statements.get(query);
+    if (statement == null || statement.isClosed()) {
+      statement = c.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      e.statements.put(query, statement);
+    }
+    return statement;
+
+  }
+
+  /**
+   * Gives a connection back to the pool.
+   */
+  void release(Connection c) {
+
+    boolean close = false;
+
+    synchronized (this) {
+      Entry e = inUse.remove(c);
+      if (e == null)
+        return;
+      if (closed) {
+        size--;
+        close = true;
+      } else {
+        e.lastUsed = System.currentTimeMillis();
+        idle.addFirst(e);
+      }
+      notifyAll();
+    }
+
+    if (close)
+      closeQuietly(c);
+
+  }
+
+  /**
+   * Removes a broken connection from the pool.
+   */
+  void invalidate(Connection c) {
+
+    synchronized (this) {
+      if (inUse.remove(c) == null)
+        return;
+      size--;
+      notifyAll();
+    }
+    closeQuietly(c);
+
+  }
+
+  /**
+   * Closes the pool, connections in use are closed when they are released.
+   */
+  void close() {
+
+    if (scheduler != null)
+      scheduler.shutdownNow();
+
+    ArrayList<Connection> toClose = new ArrayList<Connection>();
+    synchronized (this) {
+      closed = true;
+      for (Entry e : idle)
+        toClose.add(e.connection);
+      size -= idle.size();
+      idle.clear();
+      notifyAll();
+    }
+    closeConnections(toClose);
+
+  }
+
+  /**
+   * Returns the number of opened connections.
+   */
+  synchronized int size() {
+    return size;
+  }
+
+  // Removes idle connections above minSize which are unused for more than idleTimeout
+  private ArrayList<Connection> evictIdle() {
+
+    ArrayList<Connection> ret = new ArrayList<Connection>();
+    if (idleTimeout <= 0)
+      return ret;
+
+    long now = System.currentTimeMillis();
+    Iterator<Entry> it = idle.descendingIterator();
+    while (it.hasNext() && size > minSize) {
+      Entry e = it.next();
+      if (now - e.lastUsed > idleTimeout) {
+        it.remove();
+        size--;
+        ret.add(e.connection);
+      }
+    }
+    return ret;
+
+  }
+
+  // Validates all idle connections, broken ones are closed
+  private void validateIdle() {
+
+    ArrayList<Entry> toCheck;
+    synchronized (this) {
+      toCheck = new ArrayList<Entry>(idle);
+      idle.clear();
+    }
+    for (Entry e : toCheck)
+      validate(e);
+
+  }
+
+  // Validates a connection removed from the idle list, gives it back or closes it.
+  // lastUsed is not updated so that idle connections still expire.
+  private void validate(Entry e) {
+
+    if (isValid(e.connection)) {
+      e.lastValidated = System.currentTimeMillis();
+      synchronized (this) {
+        if (closed) {
+          size--;
+          closeQuietly(e.connection);
+        } else {
+          idle.addLast(e);
+        }
+        notifyAll();
+      }
+    } else {
+      System.out.println("Reconnecting to " + url);
+      closeQuietly(e.connection);
+      synchronized (this) {
+        size--;
+        notifyAll();
+      }
+    }
+
+  }
+
+  // Background task: validates connections that stayed idle for a keep-alive period
+  // (this also keeps them alive through firewalls), drops broken ones and reopens
+  // connections up to minSize
+  private void keepAlive() {
+
+    ArrayList<Entry> toCheck = new ArrayList<Entry>();
+    ArrayList<Connection> evicted;
+
+    synchronized (this) {
+      if (closed)
+        return;
+      evicted = evictIdle();
+      long now = System.currentTimeMillis();
+      Iterator<Entry> it = idle.iterator();
+      while (it.hasNext()) {
+        Entry e = it.next();
+        if (now - Math.max(e.lastUsed, e.lastValidated) >= keepAlive) {
+          it.remove();
+          toCheck.add(e);
+        }
+      }
+    }
+    closeConnections(evicted);
+
+    // Validation is done outside the lock, checked connections are not available meanwhile
+    for (Entry e : toCheck)
+      validate(e);
+
+    // Refill
+    while (true) {
+      synchronized (this) {
+        if (closed || size >= minSize)
+          return;
+        size++;
+      }
+      try {
+        Entry e = new Entry(DriverManager.getConnection(url, properties));
+        synchronized (this) {
+          if (closed) {
+            size--;
+            closeQuietly(e.connection);
+            return;
+          }
+          idle.addLast(e);
+          notifyAll();
+        }
+      } catch (SQLException ex) {
+        System.out.println("Warning cannot open connection : " + ex.getMessage());
+        synchronized (this) {
+          size--;
+          notifyAll();
+        }
+        return;
+      }
+    }
+
+  }
+
+  private boolean isClosed(Connection c) {
+
+    try {
+      return c.isClosed();
+    } catch (SQLException e) {
+      return true;
+    }
+
+  }
+
+  private boolean isValid(Connection c) {
+
+    try {
+      return c.isValid(VALIDATION_TIMEOUT);
+    } catch (SQLException e) {
+      return false;
+    }
+
+  }
+
+  // Connection exceptions (SQLState class 08) or closed connection
+  private boolean isBroken(Connection c, SQLException e) {
+
+    String state = e.getSQLState();
+    if (state != null && state.startsWith("08"))
+      return true;
+    return isClosed(c);
+
+  }
+
+  private void closeConnections(ArrayList<Connection> list) {
+    for (Connection c : list)
+      closeQuietly(c);
+  }
+
+  private void closeQuietly(PreparedStatement statement) {
+
+    try {
+      statement.close();
+    } catch (SQLException e) {
+      System.out.println("Warning closing statement : " + e.getMessage());
+    }
+
+  }
+
+  private void closeQuietly(Connection c) {
+
+    try {
+      c.close();
+    } catch (SQLException e) {
+      System.out.println("Warning closing connection : " + e.getMessage());
+    }
+
+  }
+
+}
@@ -0,0 +1,190 @@
+//+======================================================================
+// $Source: $
+//
+// Project:   Tango
+//
+// Description:  java source code for HDB extraction library.
+//
+// $Author: pons $
+//
+// Copyright (C) :      2015
+//						European Synchrotron Radiation Facility
+//                      BP 220, Grenoble 38043
+//                      FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision $
+//
+//-======================================================================
+package org.tango.jhdb;
+
+import org.tango.jhdb.data.HdbData;
+import org.tango.jhdb.data.HdbDataChunk;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Subscription reading a data cursor on demand. The cursor is opened on the first
+ * request and is read only while chunks are requested, so at most one chunk (plus
+ * the rows prefetched by the driver) is held in memory.
+ * Signals are emitted by a drain loop running on the reader asynchronous executor.
+ */
+class CursorSubscription implements HdbDataSubscription, Runnable {
+
+  private final HdbReader reader;
+  private final SignalInfo sigInfo;
+  private final String startDate;
+  private final String stopDate;
+  private final int chunkSize;
+  private final HdbDataSubscriber subscriber;
+  private final Executor executor;
+
+  private final AtomicLong demand = new AtomicLong();
+  // Number of drain requests, the drain loop runs while it is not zero
+  private final AtomicInteger wip = new AtomicInteger();
+  private volatile boolean cancelled = false;
+  private volatile boolean invalidRequest = false;
+
+  // Accessed by the drain loop only
+  private HdbDataCursor cursor = null;
+  private boolean done = false;
+
+  CursorSubscription(HdbReader reader, SignalInfo sigInfo, String startDate, String stopDate,
+                     int chunkSize, HdbDataSubscriber subscriber, Executor executor) {
+    this.reader = reader;
+    this.sigInfo = sigInfo;
+    this.startDate = startDate;
+    this.stopDate = stopDate;
+    this.chunkSize = chunkSize;
+    this.subscriber = subscriber;
+    this.executor = executor;
+  }
+
+  public void request(long n) {
+
+    if (n <= 0)
+      invalidRequest = true;
+    else
+      demand.getAndUpdate(d -> (d + n < 0) ? Long.MAX_VALUE : d + n);
+    schedule();
+
+  }
+
+  public void cancel() {
+
+    cancelled = true;
+    schedule();
+
+  }
+
+  private void schedule() {
+
+    if (wip.getAndIncrement() == 0) {
+      try {
+        executor.execute(this);
+      } catch (RejectedExecutionException e) {
+        run();
+      }
+    }
+
+  }
+
+  public void run() {
+
+    int missed = 1;
+    while (missed != 0) {
+      drain();
+      missed = wip.addAndGet(-missed);
+    }
+
+  }
+
+  private void drain() {
+
+    if (done)
+      return;
+
+    if (cancelled) {
+      finish();
+      return;
+    }
+
+    if (invalidRequest) {
+      finish();
+      subscriber.onError(new IllegalArgumentException("Non positive number of chunks requested"));
+      return;
+    }
+
+    while (demand.get() > 0 && !cancelled) {
+
+      // Only cursor failures are signalled to the subscriber
+      HdbDataChunk chunk = null;
+      boolean last;
+      try {
+        if (cursor == null)
+          cursor = reader.stream(sigInfo, startDate, stopDate);
+        ArrayList<HdbData> data = new ArrayList<HdbData>(Math.min(chunkSize, 1024));
+        while (data.size() < chunkSize && cursor.hasNext())
+          data.add(cursor.next());
+        if (!data.isEmpty())
+          chunk = new HdbDataChunk(sigInfo, data);
+        last = !cursor.hasNext();
+      } catch (HdbFailed | RuntimeException e) {
+        finish();
+        subscriber.onError(e);
+        return;
+      }
+
+      if (chunk != null) {
+        demand.decrementAndGet();
+        try {
+          subscriber.onNext(chunk);
+        } catch (RuntimeException e) {
+          // A throwing subscriber is considered as cancelled and is not signalled anymore
+          cancelled = true;
+          finish();
+          return;
+        }
+      }
+
+      if (last && !cancelled) {
+        finish();
+        subscriber.onComplete();
+        return;
+      }
+
+    }
+
+    if (cancelled)
+      finish();
+
+  }
+
+  private void finish() {
+
+    done = true;
+    if (cursor != null)
+      cursor.close();
+    cursor = null;
+
+  }
+
+}
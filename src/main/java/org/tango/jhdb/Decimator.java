@@ -0,0 +1,129 @@
+//+======================================================================
+// $Source: $
+//
+// Project:   Tango
+//
+// Description:  java source code for HDB extraction library.
+//
+// $Author: pons $
+//
+// Copyright (C) :      2015
+//						European Synchrotron Radiation Facility
+//                      BP 220, Grenoble 38043
+//                      FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision $
+//
+//-======================================================================
+package org.tango.jhdb;
+
+import org.tango.jhdb.data.HdbData;
+import org.tango.jhdb.data.HdbDataSet;
+
+import java.util.ArrayList;
+
+/**
+ * Incremental decimation of a numeric scalar signal for plotting. Samples are added in
+ * time order while they are read from the database and only the selected samples are kept,
+ * so memory does not depend on the number of samples. The requested interval is split into
+ * buckets of equal duration. Failed and NaN samples are skipped.
+ */
+abstract class Decimator {
+
+  final SignalInfo info;
+  final long start;
+  final double duration;
+  final int nbBucket;
+  final ArrayList<HdbData> result = new ArrayList<HdbData>();
+
+  Decimator(SignalInfo info, long start, long stop, int nbBucket) {
+    this.info = info;
+    this.start = start;
+    this.duration = Math.max(1, stop - start);
+    this.nbBucket = nbBucket;
+  }
+
+  /**
+   * Returns a decimator of the given type
+   */
+  static Decimator create(HdbReader.Decimation mode, SignalInfo info, long start, long stop, int nbBucket) throws HdbFailed {
+
+    switch(mode) {
+      case M4:
+        return new M4Decimator(info, start, stop, nbBucket);
+      case LTTB:
+        return new LttbDecimator(info, start, stop, nbBucket);
+      default:
+        throw new HdbFailed("Unexpected decimation mode " + mode);
+    }
+
+  }
+
+  /**
+   * Returns true if data of the given signal can be decimated (numeric scalar, not aggregated)
+   */
+  static boolean isSupported(SignalInfo info) {
+
+    if(info.isArray() || info.isAggregate())
+      return false;
+    switch(info.dataType) {
+      case DOUBLE:
+      case FLOAT:
+      case LONG:
+      case LONG64:
+      case SHORT:
+      case ULONG:
+      case USHORT:
+      case UCHAR:
+        return true;
+      default:
+        return false;
+    }
+
+  }
+
+  // Bucket of a sample time
+  int bucketOf(long time) {
+    int b = (int)((time - start) / duration * nbBucket);
+    return Math.max(0, Math.min(nbBucket - 1, b));
+  }
+
+  void add(HdbData d) throws HdbFailed {
+
+    if(d.hasFailed())
+      return;
+    double v = d.getValueAsDouble();
+    if(!Double.isNaN(v))
+      addSample(d, v);
+
+  }
+
+  // Adds a valid sample
+  abstract void addSample(HdbData d, double value);
+
+  // Selects the samples of the pending buckets at the end of the data
+  abstract void flush();
+
+  HdbDataSet getResult() {
+    flush();
+    HdbDataSet ret = new HdbDataSet(result);
+    ret.setSigInfo(info);
+    return ret;
+  }
+
+}
@@ -0,0 +1,61 @@
+//+======================================================================
+// $Source: $
+//
+// Project:   Tango
+//
+// Description:  java source code for HDB extraction library.
+//
+// $Author: pons $
+//
+// Copyright (C) :      2015
+//						European Synchrotron Radiation Facility
+//                      BP 220, Grenoble 38043
+//                      FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision $
+//
+//-======================================================================
+package org.tango.jhdb;
+
+import org.tango.jhdb.data.HdbData;
+
+/**
+ * Forward only cursor over the data of a signal, returned by HdbReader.stream().
+ * Data are read from the database while iterating, so memory usage does not depend
+ * on the requested time interval. A cursor holds database resources and must be closed.
+ */
+public interface HdbDataCursor extends AutoCloseable {
+
+  /**
+   * Returns true if more data are available
+   * @throws HdbFailed In case of failure
+   */
+  public boolean hasNext() throws HdbFailed;
+
+  /**
+   * Returns the next data
+   * @throws HdbFailed In case of failure or if no more data is available
+   */
+  public HdbData next() throws HdbFailed;
+
+  /**
+   * Releases the database resources held by this cursor
+   */
+  public void close();
+
+}
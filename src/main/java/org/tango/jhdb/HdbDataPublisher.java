@@ -0,0 +1,49 @@
+//+======================================================================
+// $Source: $
+//
+// Project:   Tango
+//
+// Description:  java source code for HDB extraction library.
+//
+// $Author: pons $
+//
+// Copyright (C) :      2015
+//						European Synchrotron Radiation Facility
+//                      BP 220, Grenoble 38043
+//                      FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision $
+//
+//-======================================================================
+package org.tango.jhdb;
+
+/**
+ * Source of data chunks, returned by HdbReader.publish().
+ * This follows the Reactive Streams Publisher contract (java.util.concurrent.Flow.Publisher
+ * on Java 9 and later), data are read from the database only when requested by the subscriber.
+ */
+public interface HdbDataPublisher {
+
+  /**
+   * Starts a new extraction for the given subscriber. HdbDataSubscriber.onSubscribe()
+   * is called before any other signal.
+   * @param subscriber Subscriber
+   */
+  public void subscribe(HdbDataSubscriber subscriber);
+
+}
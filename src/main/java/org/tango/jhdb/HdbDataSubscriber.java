@@ -0,0 +1,66 @@
+//+======================================================================
+// $Source: $
+//
+// Project:   Tango
+//
+// Description:  java source code for HDB extraction library.
+//
+// $Author: pons $
+//
+// Copyright (C) :      2015
+//						European Synchrotron Radiation Facility
+//                      BP 220, Grenoble 38043
+//                      FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision $
+//
+//-======================================================================
+package org.tango.jhdb;
+
+import org.tango.jhdb.data.HdbDataChunk;
+
+/**
+ * Receiver of the data chunks of an HdbDataPublisher (Reactive Streams Subscriber contract).
+ * Signals are sent sequentially, from a thread of the reader asynchronous executor.
+ */
+public interface HdbDataSubscriber {
+
+  /**
+   * Called once before any other signal, no data is read before subscription.request() is called
+   * @param subscription Subscription used to request chunks or to cancel
+   */
+  public void onSubscribe(HdbDataSubscription subscription);
+
+  /**
+   * Called for each chunk, never more than requested
+   * @param chunk Next chunk
+   */
+  public void onNext(HdbDataChunk chunk);
+
+  /**
+   * Called when the extraction fails, no other signal follows
+   * @param error Error (generally an HdbFailed)
+   */
+  public void onError(Throwable error);
+
+  /**
+   * Called when all data have been sent, no other signal follows
+   */
+  public void onComplete();
+
+}
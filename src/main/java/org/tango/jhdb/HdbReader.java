@@ -33,13 +33,33 @@
 
 package org.tango.jhdb;
 
+import org.tango.jhdb.data.HdbAlignedDataSet;
 import org.tango.jhdb.data.HdbData;
 import org.tango.jhdb.data.HdbDataSet;
+import org.tango.jhdb.data.HdbDoubleDataSet;
 
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 /**
  * This class provides the main methods to retrieve data from HDB.
@@ -53,7 +73,11 @@ public abstract class HdbReader {
      */
     public static enum Feature
     {
-          AGGREGATES
+          AGGREGATES,
+          /**
+           * Several signals can be fetched at the same time from different threads
+           */
+          CONCURRENT_EXTRACTION
     }
 
     /**
@@ -91,6 +115,25 @@ public abstract class HdbReader {
         }
     }
 
+    /**
+     * Decimation applied by getData() to numeric scalar signals, see setDecimation().
+     */
+    public static enum Decimation {
+        /**
+         * All samples are returned
+         */
+        NONE,
+        /**
+         * First, minimum, maximum and last samples of each time bucket (aggregated by the
+         * database when supported)
+         */
+        M4,
+        /**
+         * Largest-Triangle-Three-Buckets, one sample per time bucket (decimated while reading)
+         */
+        LTTB
+    }
+
     /**
      * Input for the libhdbpp-java.
      * Contains a SignalInfo, with all the information about the signal to be queried,
@@ -105,13 +148,33 @@ public abstract class HdbReader {
 
   private long extraPointLookupPeriod = 3600;
   private boolean extraPointEnabled = false;
-  private ArrayList<HdbProgressListener> prgListeners=null;
+  private Decimation decimation = Decimation.NONE;
+  private int decimationBuckets = 1000;
+  // Listeners are notified from extraction threads, without holding the reader lock
+  private final CopyOnWriteArrayList<HdbProgressListener> prgListeners = new CopyOnWriteArrayList<HdbProgressListener>();
+  private int concurrency = 1;
+  private volatile SigInfoCache sigInfoCache = null;
+
+  // Notify every PROGRESS_NBROW rows
+  final static int PROGRESS_NBROW = 10000;
+
+  // Signal being fetched by the calling thread (used by progress listeners)
+  private final ThreadLocal<Integer> totalRequest = ThreadLocal.withInitial(() -> 1);
+  private final ThreadLocal<Integer> currentRequest = ThreadLocal.withInitial(() -> 1);
+  // Failed samples are not requested by the calling thread (extraction modes removing them)
+  private final ThreadLocal<Boolean> ignoreErrors = ThreadLocal.withInitial(() -> false);
+  // Progress is not notified to listeners by the calling thread (asynchronous API)
+  private final ThreadLocal<Boolean> progressMuted = ThreadLocal.withInitial(() -> false);
 
-  int totalRequest;
-  int currentRequest;
   int fetchSize = 5000;
   int arrayFetchSize = 500;
 
+  // Executor of the asynchronous API, sizes are overridden by HDB_ASYNC_THREADS and HDB_ASYNC_QUEUE
+  final static int DEFAULT_ASYNC_THREADS = 4;
+  final static int DEFAULT_ASYNC_QUEUE = 1000;
+  private ThreadPoolExecutor asyncExecutor = null;
+  private ThreadPoolExecutor extractExecutor = null;
+
   // Default user and password
   static final String DEFAULT_DB_NAME = "hdb";
   static final String DEFAULT_DB_USER = "hdbreader";
@@ -167,16 +230,583 @@ public abstract class HdbReader {
                             String startDate,
                             String stopDate) throws HdbFailed {
 
-    totalRequest = 1;
-    currentRequest = 1;
+    totalRequest.set(1);
+    currentRequest.set(1);
     return getDataPrivate(sigInfo,startDate,stopDate);
 
   }
 
+  /**
+   * Fetch data from the database, the extraction is aborted when the request is cancelled
+   * or when its deadline is reached.
+   *
+   * @param attName        The fully qualified tango attribute name (eg: tango://hostname:port/domain/family/member/attname)
+   * @param startDate      Beginning of the requested time interval (as string eg: "10/07/2014 10:00:00")
+   * @param stopDate       End of the requested time interval (as string eg: "10/07/2014 12:00:00")
+   * @param request        Cancellation handle of the extraction
+   *
+   * @throws HdbFailed In case of failure or if the request is cancelled
+   */
+  public HdbDataSet getData(String attName,
+                            String startDate,
+                            String stopDate,
+                            HdbRequest request) throws HdbFailed {
+
+    if(attName==null)
+      throw new HdbFailed("attName input parameters is null");
+
+    if(request!=null)
+      request.check();
+    SignalInfo sigInfo = getSigInfo(attName);
+    return getData(sigInfo, startDate, stopDate, request);
+
+  }
+
+  /**
+   * Fetch data from the database, the extraction is aborted when the request is cancelled
+   * or when its deadline is reached.
+   *
+   * @param sigInfo        Attribute info structure
+   * @param startDate      Beginning of the requested time interval (as string eg: "10/07/2014 10:00:00")
+   * @param stopDate       End of the requested time interval (as string eg: "10/07/2014 12:00:00")
+   * @param request        Cancellation handle of the extraction
+   *
+   * @throws HdbFailed In case of failure or if the request is cancelled
+   */
+  public HdbDataSet getData(SignalInfo sigInfo,
+                            String startDate,
+                            String stopDate,
+                            HdbRequest request) throws HdbFailed {
+
+    HdbRequest previous = HdbRequest.attach(request);
+    try {
+      HdbRequest.checkCurrent();
+      return getData(sigInfo, startDate, stopDate);
+    } finally {
+      HdbRequest.attach(previous);
+    }
+
+  }
+
 
   abstract HdbDataSet getDataFromDB(SignalInfo sigInfo,
                                     String startDate,
                                     String stopDate) throws HdbFailed;
+
+  /**
+   * Opens a cursor on the data of the specified attribute. Unlike getData(), data are
+   * read from the database while iterating and are not kept in memory.
+   * The cursor must be closed. Progress listeners are not notified.
+   *
+   * @param attName        The fully qualified tango attribute name (eg: tango://hostname:port/domain/family/member/attname)
+   * @param startDate      Beginning of the requested time interval (as string eg: "10/07/2014 10:00:00")
+   * @param stopDate       End of the requested time interval (as string eg: "10/07/2014 12:00:00")
+   *
+   * @throws HdbFailed In case of failure
+   */
+  public HdbDataCursor stream(String attName,
+                              String startDate,
+                              String stopDate) throws HdbFailed {
+
+    if(attName==null)
+      throw new HdbFailed("attName input parameters is null");
+
+    SignalInfo sigInfo = getSigInfo(attName);
+    return stream(sigInfo, startDate, stopDate);
+
+  }
+
+  /**
+   * Opens a cursor on the data of the specified signal. Unlike getData(), data are
+   * read from the database while iterating and are not kept in memory.
+   * The cursor must be closed. Progress listeners are not notified.
+   *
+   * @param sigInfo        Attribute info structure
+   * @param startDate      Beginning of the requested time interval (as string eg: "10/07/2014 10:00:00")
+   * @param stopDate       End of the requested time interval (as string eg: "10/07/2014 12:00:00")
+   *
+   * @throws HdbFailed In case of failure
+   */
+  public HdbDataCursor stream(SignalInfo sigInfo,
+                              String startDate,
+                              String stopDate) throws HdbFailed {
+
+    if(sigInfo==null)
+      throw new HdbFailed("sigInfo input parameters is null");
+
+    checkDates(startDate, stopDate);
+    HdbRequest.checkCurrent();
+
+    // Configuration history is small, no need to stream it
+    if (sigInfo.queryConfig!=HdbSigParam.QUERY_DATA)
+      return new ListCursor(getDataPrivate(sigInfo, startDate, stopDate));
+
+    HdbDataCursor cursor = openCursor(sigInfo, startDate, stopDate);
+
+    if (extraPointEnabled) {
+      boolean empty;
+      try {
+        empty = !cursor.hasNext();
+      } catch (HdbFailed e) {
+        cursor.close();
+        throw e;
+      }
+      if (empty) {
+        // Lookup for the extra point
+        cursor.close();
+        return new ListCursor(getDataPrivate(sigInfo, startDate, stopDate));
+      }
+    }
+
+    return cursor;
+
+  }
+
+  /**
+   * Opens a cursor on the data of the specified signal, reading is aborted when the
+   * request is cancelled or when its deadline is reached. See stream(SignalInfo,...).
+   *
+   * @param sigInfo        Attribute info structure
+   * @param startDate      Beginning of the requested time interval (as string eg: "10/07/2014 10:00:00")
+   * @param stopDate       End of the requested time interval (as string eg: "10/07/2014 12:00:00")
+   * @param request        Cancellation handle of the extraction
+   *
+   * @throws HdbFailed In case of failure or if the request is cancelled
+   */
+  public HdbDataCursor stream(SignalInfo sigInfo,
+                              String startDate,
+                              String stopDate,
+                              HdbRequest request) throws HdbFailed {
+
+    // The cursor keeps the request attached when it is opened
+    HdbRequest previous = HdbRequest.attach(request);
+    try {
+      return stream(sigInfo, startDate, stopDate);
+    } finally {
+      HdbRequest.attach(previous);
+    }
+
+  }
+
+  /**
+   * Returns a publisher of the data of the specified attribute, see publish(SignalInfo,...).
+   *
+   * @param attName        The fully qualified tango attribute name (eg: tango://hostname:port/domain/family/member/attname)
+   * @param startDate      Beginning of the requested time interval (as string eg: "10/07/2014 10:00:00")
+   * @param stopDate       End of the requested time interval (as string eg: "10/07/2014 12:00:00")
+   * @param chunkSize      Number of samples per chunk
+   *
+   * @throws HdbFailed In case of failure
+   */
+  public HdbDataPublisher publish(String attName,
+                                  String startDate,
+                                  String stopDate,
+                                  int chunkSize) throws HdbFailed {
+
+    if(attName==null)
+      throw new HdbFailed("attName input parameters is null");
+
+    SignalInfo sigInfo = getSigInfo(attName);
+    return publish(sigInfo, startDate, stopDate, chunkSize);
+
+  }
+
+  /**
+   * Returns a publisher of the data of the specified signal. Each subscriber gets its own
+   * extraction, data are sent by chunks of chunkSize samples (the last one may be smaller)
+   * and are read from the database only when chunks are requested. Extraction runs on the
+   * asynchronous executor. Progress listeners are not notified.
+   *
+   * @param sigInfo        Attribute info structure
+   * @param startDate      Beginning of the requested time interval (as string eg: "10/07/2014 10:00:00")
+   * @param stopDate       End of the requested time interval (as string eg: "10/07/2014 12:00:00")
+   * @param chunkSize      Number of samples per chunk
+   *
+   * @throws HdbFailed In case of failure
+   */
+  public HdbDataPublisher publish(SignalInfo sigInfo,
+                                  String startDate,
+                                  String stopDate,
+                                  int chunkSize) throws HdbFailed {
+
+    if(sigInfo==null)
+      throw new HdbFailed("sigInfo input parameters is null");
+    if(chunkSize<=0)
+      throw new HdbFailed("publish(): chunkSize must be positive");
+
+    checkDates(startDate, stopDate);
+    ExecutorService executor = getAsyncExecutor();
+
+    return subscriber -> {
+      CursorSubscription subscription =
+          new CursorSubscription(this, sigInfo, startDate, stopDate, chunkSize, subscriber, executor);
+      subscriber.onSubscribe(subscription);
+    };
+
+  }
+
+  /**
+   * Fetch data of a scalar DOUBLE or FLOAT attribute as a columnar data set.
+   *
+   * @param attName        The fully qualified tango attribute name (eg: tango://hostname:port/domain/family/member/attname)
+   * @param startDate      Beginning of the requested time interval (as string eg: "10/07/2014 10:00:00")
+   * @param stopDate       End of the requested time interval (as string eg: "10/07/2014 12:00:00")
+   *
+   * @throws HdbFailed In case of failure
+   */
+  public HdbDoubleDataSet getDoubleData(String attName,
+                                        String startDate,
+                                        String stopDate) throws HdbFailed {
+
+    if(attName==null)
+      throw new HdbFailed("attName input parameters is null");
+
+    SignalInfo sigInfo = getSigInfo(attName);
+    return getDoubleData(sigInfo, startDate, stopDate);
+
+  }
+
+  /**
+   * Fetch data of a scalar DOUBLE or FLOAT signal as a columnar data set.
+   * This avoids the creation of one HdbData per sample. Progress listeners are not notified.
+   *
+   * @param sigInfo        Attribute info structure
+   * @param startDate      Beginning of the requested time interval (as string eg: "10/07/2014 10:00:00")
+   * @param stopDate       End of the requested time interval (as string eg: "10/07/2014 12:00:00")
+   *
+   * @throws HdbFailed In case of failure
+   */
+  public HdbDoubleDataSet getDoubleData(SignalInfo sigInfo,
+                                        String startDate,
+                                        String stopDate) throws HdbFailed {
+
+    if(sigInfo==null)
+      throw new HdbFailed("sigInfo input parameters is null");
+    if(sigInfo.isArray() || sigInfo.isAggregate() || sigInfo.queryConfig!=HdbSigParam.QUERY_DATA ||
+       (sigInfo.dataType!=SignalInfo.Type.DOUBLE && sigInfo.dataType!=SignalInfo.Type.FLOAT))
+      throw new HdbFailed("getDoubleData(): scalar DOUBLE or FLOAT signal expected");
+
+    checkDates(startDate, stopDate);
+
+    HdbDoubleDataSet ret = getDoubleDataFromDB(sigInfo, startDate, stopDate);
+
+    if (ret.isEmpty() && extraPointEnabled) {
+      // Lookup for the extra point
+      ret = new HdbDoubleDataSet(sigInfo, 1);
+      for (HdbData d : getDataPrivate(sigInfo, startDate, stopDate))
+        ret.add(d);
+    }
+
+    ret.trimToSize();
+    return ret;
+
+  }
+
+  /**
+   * Fills a columnar data set, readers which cannot fill it from the database
+   * convert data read by a cursor.
+   */
+  HdbDoubleDataSet getDoubleDataFromDB(SignalInfo sigInfo,
+                                       String startDate,
+                                       String stopDate) throws HdbFailed {
+
+    HdbDoubleDataSet ret = new HdbDoubleDataSet(sigInfo);
+    HdbDataCursor cursor = openCursor(sigInfo, startDate, stopDate);
+    try {
+      while (cursor.hasNext())
+        ret.add(cursor.next());
+    } finally {
+      cursor.close();
+    }
+    return ret;
+
+  }
+
+  /**
+   * Fetch decimated data of the specified attribute, see getDataDecimated(SignalInfo,...).
+   *
+   * @param attName        The fully qualified tango attribute name (eg: tango://hostname:port/domain/family/member/attname)
+   * @param startDate      Beginning of the requested time interval (as string eg: "10/07/2014 10:00:00")
+   * @param stopDate       End of the requested time interval (as string eg: "10/07/2014 12:00:00")
+   * @param nbBucket       Number of time buckets (eg: the chart width in pixels)
+   *
+   * @throws HdbFailed In case of failure
+   */
+  public HdbDataSet getDataDecimated(String attName,
+                                     String startDate,
+                                     String stopDate,
+                                     int nbBucket) throws HdbFailed {
+
+    if(attName==null)
+      throw new HdbFailed("attName input parameters is null");
+
+    SignalInfo sigInfo = getSigInfo(attName);
+    return getDataDecimated(sigInfo, startDate, stopDate, nbBucket);
+
+  }
+
+  /**
+   * Fetch decimated data of a numeric scalar signal for plotting. The time interval is split
+   * into nbBucket buckets of equal duration and only the first, minimum, maximum and last
+   * samples of each bucket are returned (M4 decimation), so at most 4*nbBucket samples are
+   * transferred while the envelope of the signal is kept. Failed and NaN samples are skipped.
+   * The aggregation is done by the database when supported, otherwise data are decimated
+   * while they are read. Samples aggregated by the database have no write value.
+   *
+   * @param sigInfo        Attribute info structure
+   * @param startDate      Beginning of the requested time interval (as string eg: "10/07/2014 10:00:00")
+   * @param stopDate       End of the requested time interval (as string eg: "10/07/2014 12:00:00")
+   * @param nbBucket       Number of time buckets (eg: the chart width in pixels)
+   *
+   * @throws HdbFailed In case of failure
+   */
+  public HdbDataSet getDataDecimated(SignalInfo sigInfo,
+                                     String startDate,
+                                     String stopDate,
+                                     int nbBucket) throws HdbFailed {
+    return getDataDecimated(sigInfo, startDate, stopDate, nbBucket, Decimation.M4);
+  }
+
+  /**
+   * Fetch decimated data of a numeric scalar signal using the given decimation. LTTB
+   * decimation is always done while data are read and returns one sample per bucket.
+   *
+   * @param sigInfo        Attribute info structure
+   * @param startDate      Beginning of the requested time interval (as string eg: "10/07/2014 10:00:00")
+   * @param stopDate       End of the requested time interval (as string eg: "10/07/2014 12:00:00")
+   * @param nbBucket       Number of time buckets (eg: the chart width in pixels)
+   * @param mode           Decimation mode
+   *
+   * @throws HdbFailed In case of failure
+   */
+  public HdbDataSet getDataDecimated(SignalInfo sigInfo,
+                                     String startDate,
+                                     String stopDate,
+                                     int nbBucket,
+                                     Decimation mode) throws HdbFailed {
+
+    if(sigInfo==null)
+      throw new HdbFailed("sigInfo input parameters is null");
+    if(nbBucket<=0)
+      throw new HdbFailed("getDataDecimated(): nbBucket must be positive");
+    if(mode==null || mode==Decimation.NONE)
+      throw new HdbFailed("getDataDecimated(): no decimation mode");
+    if(sigInfo.queryConfig!=HdbSigParam.QUERY_DATA || !Decimator.isSupported(sigInfo))
+      throw new HdbFailed("getDataDecimated(): " + sigInfo.dataType + " " + sigInfo.format + " data cannot be decimated");
+
+    checkDates(startDate, stopDate);
+    HdbDataSet result = getDecimatedData(sigInfo, startDate, stopDate, nbBucket, mode);
+    result.setSigInfo(sigInfo);
+    return result;
+
+  }
+
+  private HdbDataSet getDecimatedData(SignalInfo sigInfo,
+                                      String startDate,
+                                      String stopDate,
+                                      int nbBucket,
+                                      Decimation mode) throws HdbFailed {
+
+    if(mode==Decimation.M4)
+      return getDecimatedDataFromDB(sigInfo, startDate, stopDate, nbBucket);
+    else
+      return decimate(Decimator.create(mode, sigInfo, parseTime(startDate), parseTime(stopDate), nbBucket),
+                      sigInfo, startDate, stopDate);
+
+  }
+
+  /**
+   * Fetches M4 decimated data, readers without server side aggregation decimate the cursor data.
+   */
+  HdbDataSet getDecimatedDataFromDB(SignalInfo sigInfo,
+                                    String startDate,
+                                    String stopDate,
+                                    int nbBucket) throws HdbFailed {
+
+    M4Decimator m4 = new M4Decimator(sigInfo, parseTime(startDate), parseTime(stopDate), nbBucket);
+    return decimate(m4, sigInfo, startDate, stopDate);
+
+  }
+
+  // Streams the signal data through a decimator
+  private HdbDataSet decimate(Decimator decimator,
+                              SignalInfo sigInfo,
+                              String startDate,
+                              String stopDate) throws HdbFailed {
+
+    HdbDataCursor cursor = openCursor(sigInfo, startDate, stopDate);
+    try {
+      while (cursor.hasNext())
+        decimator.add(cursor.next());
+    } finally {
+      cursor.close();
+    }
+    return decimator.getResult();
+
+  }
+
+  /**
+   * Opens a database cursor, readers which do not support streaming
+   * return a cursor over the full data set.
+   */
+  HdbDataCursor openCursor(SignalInfo sigInfo,
+                           String startDate,
+                           String stopDate) throws HdbFailed {
+    return new ListCursor(getDataFromDB(sigInfo, startDate, stopDate));
+  }
+
+  /**
+   * Asynchronous version of getData(). Progress listeners are not notified.
+   * Cancelling the returned future aborts the extraction.
+   *
+   * @param attName        The fully qualified tango attribute name (eg: tango://hostname:port/domain/family/member/attname)
+   * @param startDate      Beginning of the requested time interval (as string eg: "10/07/2014 10:00:00")
+   * @param stopDate       End of the requested time interval (as string eg: "10/07/2014 12:00:00")
+   */
+  public CompletableFuture<HdbDataSet> getDataAsync(String attName,
+                                                   String startDate,
+                                                   String stopDate) {
+
+    if(attName==null)
+      return failedFuture(new HdbFailed("attName input parameters is null"));
+
+    return compose(getSigInfoAsync(attName), sigInfo -> getDataAsync(sigInfo, startDate, stopDate));
+
+  }
+
+  /**
+   * Asynchronous version of getData(). Progress listeners are not notified.
+   * Cancelling the returned future aborts the extraction.
+   *
+   * @param sigInfo        Attribute info structure
+   * @param startDate      Beginning of the requested time interval (as string eg: "10/07/2014 10:00:00")
+   * @param stopDate       End of the requested time interval (as string eg: "10/07/2014 12:00:00")
+   */
+  public CompletableFuture<HdbDataSet> getDataAsync(SignalInfo sigInfo,
+                                                   String startDate,
+                                                   String stopDate) {
+
+    if(sigInfo==null)
+      return failedFuture(new HdbFailed("sigInfo input parameters is null"));
+
+    try {
+      checkDates(startDate, stopDate);
+    } catch (HdbFailed e) {
+      return failedFuture(e);
+    }
+
+    // Configuration history, extra point lookup and decimation are done by the blocking call
+    if(sigInfo.queryConfig!=HdbSigParam.QUERY_DATA || extraPointEnabled || decimation!=Decimation.NONE)
+      return supplyAsync(() -> getDataMuted(sigInfo, startDate, stopDate));
+
+    return getDataFromDBAsync(sigInfo, startDate, stopDate);
+
+  }
+
+  /**
+   * Asynchronous version of getData(), the returned future fails with HdbFailed when
+   * the request is cancelled or when its deadline is reached. Cancelling the returned
+   * future aborts the extraction but does not cancel the request.
+   *
+   * @param sigInfo        Attribute info structure
+   * @param startDate      Beginning of the requested time interval (as string eg: "10/07/2014 10:00:00")
+   * @param stopDate       End of the requested time interval (as string eg: "10/07/2014 12:00:00")
+   * @param request        Cancellation handle of the extraction
+   */
+  public CompletableFuture<HdbDataSet> getDataAsync(SignalInfo sigInfo,
+                                                   String startDate,
+                                                   String stopDate,
+                                                   HdbRequest request) {
+
+    if(request==null)
+      return getDataAsync(sigInfo, startDate, stopDate);
+    if(request.isCancelled())
+      return failedFuture(request.failure());
+
+    // Blocking extractions run under the request
+    CompletableFuture<HdbDataSet> extraction;
+    HdbRequest previous = HdbRequest.attach(request);
+    try {
+      extraction = getDataAsync(sigInfo, startDate, stopDate);
+    } finally {
+      HdbRequest.attach(previous);
+    }
+
+    CompletableFuture<HdbDataSet> ret = new CompletableFuture<HdbDataSet>();
+    Runnable cancelHandler = () -> {
+      ret.completeExceptionally(request.failure());
+      extraction.cancel(true);
+    };
+
+    extraction.whenComplete((r, e) -> {
+      request.removeCancelHandler(cancelHandler);
+      if (e != null)
+        ret.completeExceptionally(unwrap(e));
+      else
+        ret.complete(r);
+    });
+    ret.whenComplete((r, e) -> {
+      if (ret.isCancelled())
+        extraction.cancel(true);
+    });
+    request.addCancelHandler(cancelHandler);
+
+    return ret;
+
+  }
+
+  /**
+   * Fetches data asynchronously, the returned data set must have its sigInfo set.
+   * Readers without an asynchronous driver run getData() on the asynchronous executor.
+   */
+  CompletableFuture<HdbDataSet> getDataFromDBAsync(SignalInfo sigInfo,
+                                                   String startDate,
+                                                   String stopDate) {
+    return supplyAsync(() -> getDataMuted(sigInfo, startDate, stopDate));
+  }
+
+  // Blocking getData() run by the asynchronous API, without notifying progress listeners
+  HdbDataSet getDataMuted(SignalInfo sigInfo,
+                          String startDate,
+                          String stopDate) throws HdbFailed {
+
+    progressMuted.set(true);
+    try {
+      return getData(sigInfo, startDate, stopDate);
+    } finally {
+      progressMuted.set(false);
+    }
+
+  }
+
+  /**
+   * Asynchronous version of getSigInfo().
+   * @param attName The fully qualified tango attribute name (eg: tango://hostname:port/domain/family/member/attname)
+   */
+  public CompletableFuture<HdbSigInfo> getSigInfoAsync(String attName) {
+    return supplyAsync(() -> getSigInfo(attName));
+  }
+
+  /**
+   * Asynchronous version of getParams().
+   * @param sigInfo   Attribute info structure
+   * @param startDate Beginning of the requested time interval (as string eg: "10/07/2014 10:00:00")
+   * @param stopDate  End of the requested time interval (as string eg: "10/07/2014 12:00:00")
+   */
+  public CompletableFuture<ArrayList<HdbSigParam>> getParamsAsync(SignalInfo sigInfo,
+                                                                  String startDate,
+                                                                  String stopDate) {
+    return supplyAsync(() -> getParams(sigInfo, startDate, stopDate));
+  }
+
+  /**
+   * Asynchronous version of getLastParam().
+   * @param sigInfo Attribute info structure
+   */
+  public CompletableFuture<HdbSigParam> getLastParamAsync(SignalInfo sigInfo) {
+    return supplyAsync(() -> getLastParam(sigInfo));
+  }
+
   /**
    * Fetch data from the database from several attributes.
    *
@@ -195,9 +825,7 @@ public abstract class HdbReader {
     if(attNames==null)
       throw new HdbFailed("getData(): attNames input parameters is null");
 
-    SignalInfo[] sigInfos = new SignalInfo[attNames.length];
-    for(int i=0;i<sigInfos.length;i++)
-      sigInfos[i] = getSigInfo(attNames[i]);
+    SignalInfo[] sigInfos = getSigInfos(Arrays.asList(attNames));
 
     return getData(sigInfos,startDate,stopDate,extractMode);
 
@@ -216,21 +844,24 @@ public abstract class HdbReader {
     if(inputs.isEmpty())
       throw new HdbFailed("getData(): sigInfos input parameters is null");
 
-    totalRequest = inputs.size();
-
-    // Fetch data
-    HdbDataSet[] ret;
-    ret = new HdbDataSet[inputs.size()];
-    for (int i = 0; i < ret.length; i++) {
-      currentRequest = i + 1;
+    SignalInfo[] sigInfos = new SignalInfo[inputs.size()];
+    String[] startDates = new String[inputs.size()];
+    String[] stopDates = new String[inputs.size()];
+    for (int i = 0; i < sigInfos.length; i++) {
       final SignalInput in = inputs.get(i);
-      ret[i] = getDataPrivate(in.info, in.startDate, in.endDate);
+      sigInfos[i] = in.info;
+      startDates[i] = in.startDate;
+      stopDates[i] = in.endDate;
     }
 
-    // Remove hasFailed
-    if (extractMode == ExtractMode.MODE_IGNORE_ERROR ||
+    // Fetch data
+    boolean noError = extractMode == ExtractMode.MODE_IGNORE_ERROR ||
             extractMode == ExtractMode.MODE_CORRELATED ||
-            extractMode == ExtractMode.MODE_FILLED) {
+            extractMode == ExtractMode.MODE_FILLED;
+    HdbDataSet[] ret = getDataPrivate(sigInfos, startDates, stopDates, noError);
+
+    // Remove hasFailed (readers which cannot filter errors in the query)
+    if (noError) {
       for (int i = 0; i < ret.length; i++)
         ret[i].removeHasFailed();
     }
@@ -239,10 +870,75 @@ public abstract class HdbReader {
     if (extractMode == ExtractMode.MODE_CORRELATED && ret.length > 1)
       correlate(ret);
 
-    if (extractMode == ExtractMode.MODE_FILLED && ret.length > 1)
-      fill(ret);
+    if (extractMode == ExtractMode.MODE_FILLED && ret.length > 1)
+      fill(ret);
+
+    return ret;
+  }
+
+  /**
+   * Fetch data from several attributes aligned on a common timeline. Unlike getData(), samples
+   * are not copied for each row. Failed samples are removed.
+   *
+   * @param inputs         List of inputs
+   * @param extractMode    Extraction mode, MODE_FILLED or MODE_CORRELATED
+   *
+   * @throws HdbFailed In case of failure
+   */
+  public HdbAlignedDataSet getDataAligned(List<SignalInput> inputs,
+                                          ExtractMode extractMode) throws HdbFailed {
+    return getDataAligned(inputs, extractMode, -1);
+  }
+
+  /**
+   * Fetch data from several attributes aligned on a common timeline. Unlike getData(), samples
+   * are not copied for each row. Failed samples are removed.
+   * In MODE_CORRELATED, when a tolerance is given, rows hold the nearest sample of each signal
+   * within the tolerance (or no sample) instead of the last sample before the row time.
+   *
+   * @param inputs         List of inputs
+   * @param extractMode    Extraction mode, MODE_FILLED or MODE_CORRELATED
+   * @param tolerance      Correlation tolerance in microseconds, -1 for none
+   *
+   * @throws HdbFailed In case of failure
+   */
+  public HdbAlignedDataSet getDataAligned(List<SignalInput> inputs,
+                                          ExtractMode extractMode,
+                                          long tolerance) throws HdbFailed {
+
+    if(extractMode!=ExtractMode.MODE_FILLED && extractMode!=ExtractMode.MODE_CORRELATED)
+      throw new HdbFailed("getDataAligned(): " + extractMode + " mode not supported");
+
+    HdbDataSet[] ret = getData(inputs, ExtractMode.MODE_IGNORE_ERROR);
+    if(extractMode==ExtractMode.MODE_FILLED)
+      return HdbAlignedDataSet.filled(ret);
+    else
+      return HdbAlignedDataSet.correlated(ret, tolerance);
+
+  }
+
+  /**
+   * Fetch data from the database from several attributes, the extraction is aborted
+   * when the request is cancelled or when its deadline is reached.
+   *
+   * @param inputs         List of inputs
+   * @param extractMode    Extraction mode MODE_NORMAL,MODE_IGNORE_ERROR or MODE_CORRELATED
+   * @param request        Cancellation handle of the extraction
+   *
+   * @throws HdbFailed In case of failure or if the request is cancelled
+   */
+  public HdbDataSet[] getData(List<SignalInput> inputs,
+                              ExtractMode extractMode,
+                              HdbRequest request) throws HdbFailed {
+
+    HdbRequest previous = HdbRequest.attach(request);
+    try {
+      HdbRequest.checkCurrent();
+      return getData(inputs, extractMode);
+    } finally {
+      HdbRequest.attach(previous);
+    }
 
-    return ret;
   }
 
   /**
@@ -263,19 +959,21 @@ public abstract class HdbReader {
     if(sigInfos==null)
       throw new HdbFailed("getData(): sigInfos input parameters is null");
 
-    totalRequest = sigInfos.length;
+    String[] startDates = new String[sigInfos.length];
+    String[] stopDates = new String[sigInfos.length];
+    for(int i=0;i<sigInfos.length;i++) {
+      startDates[i] = startDate;
+      stopDates[i] = stopDate;
+    }
 
     // Fetch data
-    HdbDataSet[] ret = new HdbDataSet[sigInfos.length];
-    for(int i=0;i<ret.length;i++) {
-      currentRequest = i+1;
-      ret[i] = getDataPrivate(sigInfos[i], startDate, stopDate);
-    }
+    boolean noError = extractMode==ExtractMode.MODE_IGNORE_ERROR.ordinal() ||
+                      extractMode==ExtractMode.MODE_CORRELATED.ordinal() ||
+                      extractMode==ExtractMode.MODE_FILLED.ordinal();
+    HdbDataSet[] ret = getDataPrivate(sigInfos, startDates, stopDates, noError);
 
-    // Remove hasFailed
-    if(extractMode==ExtractMode.MODE_IGNORE_ERROR.ordinal() ||
-       extractMode==ExtractMode.MODE_CORRELATED.ordinal() ||
-       extractMode==ExtractMode.MODE_FILLED.ordinal()) {
+    // Remove hasFailed (readers which cannot filter errors in the query)
+    if(noError) {
       for(int i=0;i<ret.length;i++)
         ret[i].removeHasFailed();
     }
@@ -291,6 +989,23 @@ public abstract class HdbReader {
 
   }
 
+  /**
+   * Sets the maximum number of signals fetched at the same time when extracting data
+   * from several attributes (default is 1). Concurrent extraction is used only if the
+   * reader supports the CONCURRENT_EXTRACTION feature.
+   * @param nb Maximum number of concurrent extractions
+   */
+  public void setConcurrency(int nb) {
+    concurrency = Math.max(1, nb);
+  }
+
+  /**
+   * Returns the maximum number of signals fetched at the same time.
+   */
+  public int getConcurrency() {
+    return concurrency;
+  }
+
   /**
    * Retrieves the list of all archived attributes (fully qualified name eg: tango://hostname:port/domain/family/member/attname).
    * @throws HdbFailed In case of failure
@@ -323,12 +1038,28 @@ public abstract class HdbReader {
   public abstract String[] getNames(String host,String domain,String family,String member) throws HdbFailed;
 
   /**
-   * Returns signal info
+   * Returns signal info, from the signal info cache when enabled (see setSigInfoCache())
    * @param attName The fully qualified tango attribute name (eg: tango://hostname:port/domain/family/member/attname)
    * @return The signal identifier
    * @throws HdbFailed In case of failure
    */
-  public abstract HdbSigInfo getSigInfo(String attName) throws HdbFailed;
+  public HdbSigInfo getSigInfo(String attName) throws HdbFailed {
+
+    SigInfoCache cache = sigInfoCache;
+    if(cache==null || attName==null)
+      return getSigInfoFromDB(attName);
+
+    HdbSigInfo ret = cache.get(attName);
+    if(ret==null) {
+      ret = getSigInfoFromDB(attName);
+      cache.put(attName, ret);
+    }
+    return ret;
+
+  }
+
+  // Reads the signal info from the database
+  abstract HdbSigInfo getSigInfoFromDB(String attName) throws HdbFailed;
 
   /**
    * Return signal info
@@ -348,6 +1079,63 @@ public abstract class HdbReader {
     return ret;
   }
 
+  /**
+   * Returns the signal info of several attributes, in the order of the given list.
+   * SQL readers resolve all names with a single query.
+   * @param attNames List of fully qualified tango attribute names (eg: tango://hostname:port/domain/family/member/attname)
+   * @throws HdbFailed In case of failure or if a signal is not found
+   */
+  public HdbSigInfo[] getSigInfos(List<String> attNames) throws HdbFailed {
+
+    if(attNames==null)
+      throw new HdbFailed("getSigInfos(): attNames input parameters is null");
+
+    SignalInfo[] infos = new SignalInfo[attNames.size()];
+    for(int i=0;i<infos.length;i++) {
+      if(attNames.get(i)==null)
+        throw new HdbFailed("getSigInfos(): attNames contains a null item");
+      infos[i] = prepareSigInfo(attNames.get(i));
+    }
+
+    // Only the signals missing in the cache are resolved
+    SigInfoCache cache = sigInfoCache;
+    HdbSigInfo[] ret = new HdbSigInfo[infos.length];
+    ArrayList<SignalInfo> missing = new ArrayList<>();
+    for(int i=0;i<infos.length;i++) {
+      if(cache!=null)
+        ret[i] = cache.get(infos[i].name);
+      if(ret[i]==null)
+        missing.add(infos[i]);
+    }
+    if(missing.isEmpty())
+      return ret;
+
+    SignalInfo[] toResolve = missing.toArray(new SignalInfo[0]);
+    resolveSigInfos(toResolve);
+    for(SignalInfo info : toResolve) {
+      if(info.sigId==null)
+        throw new HdbFailed("Signal not found: " + info.name);
+      if(cache!=null)
+        cache.put(info.name, info);
+    }
+    for(int i=0,j=0;i<infos.length;i++)
+      if(ret[i]==null)
+        ret[i] = new HdbSigInfo(toResolve[j++]);
+    return ret;
+
+  }
+
+  /**
+   * Fills id, table and type of the given prepared signal infos, sigId is left to null
+   * for unknown signals. By default, signals are resolved one by one.
+   */
+  void resolveSigInfos(SignalInfo[] infos) throws HdbFailed {
+
+    for(int i=0;i<infos.length;i++)
+      infos[i] = getSigInfoFromDB(infos[i].name);
+
+  }
+
   /**
    * Return history of configurations of the specified attribute
    *
@@ -391,9 +1179,218 @@ public abstract class HdbReader {
    * @param stopDate  End of the requested time interval (as string eg: "10/07/2014 12:00:00")
    * @throws HdbFailed In case of failure
    */
-  public abstract HdbDataSet findErrors(String attName,
-                                        String startDate,
-                                        String stopDate) throws HdbFailed;
+  public HdbDataSet findErrors(String attName,
+                               String startDate,
+                               String stopDate) throws HdbFailed {
+
+    if(attName==null)
+      throw new HdbFailed("attName input parameters is null");
+
+    return findErrors(getSigInfo(attName), startDate, stopDate);
+
+  }
+
+  /**
+   * This method finds the errors occurred inside a time interval for the specified signal.
+   * Only failed samples are returned (time, error message and quality, without value).
+   *
+   * @param sigInfo   Attribute info structure
+   * @param startDate Beginning of the requested time interval (as string eg: "10/07/2014 10:00:00")
+   * @param stopDate  End of the requested time interval (as string eg: "10/07/2014 12:00:00")
+   * @throws HdbFailed In case of failure
+   */
+  public HdbDataSet findErrors(SignalInfo sigInfo,
+                               String startDate,
+                               String stopDate) throws HdbFailed {
+
+    if(sigInfo==null)
+      throw new HdbFailed("sigInfo input parameters is null");
+
+    return findErrors(new SignalInfo[]{sigInfo}, startDate, stopDate)[0];
+
+  }
+
+  /**
+   * Finds the errors occurred inside a time interval for several attributes, see findErrors().
+   *
+   * @param attNames  List of fully qualified tango attributes (eg: tango://hostname:port/domain/family/member/attname)
+   * @param startDate Beginning of the requested time interval (as string eg: "10/07/2014 10:00:00")
+   * @param stopDate  End of the requested time interval (as string eg: "10/07/2014 12:00:00")
+   * @throws HdbFailed In case of failure
+   */
+  public HdbDataSet[] findErrors(String[] attNames,
+                                 String startDate,
+                                 String stopDate) throws HdbFailed {
+
+    if(attNames==null)
+      throw new HdbFailed("findErrors(): attNames input parameters is null");
+
+    SignalInfo[] sigInfos = getSigInfos(Arrays.asList(attNames));
+
+    return findErrors(sigInfos, startDate, stopDate);
+
+  }
+
+  /**
+   * Finds the errors occurred inside a time interval for several signals, see findErrors().
+   * SQL readers scan all signals with a single query.
+   *
+   * @param sigInfos  List of attribute info structure
+   * @param startDate Beginning of the requested time interval (as string eg: "10/07/2014 10:00:00")
+   * @param stopDate  End of the requested time interval (as string eg: "10/07/2014 12:00:00")
+   * @throws HdbFailed In case of failure
+   */
+  public HdbDataSet[] findErrors(SignalInfo[] sigInfos,
+                                 String startDate,
+                                 String stopDate) throws HdbFailed {
+
+    if(sigInfos==null)
+      throw new HdbFailed("findErrors(): sigInfos input parameters is null");
+    for(SignalInfo sigInfo : sigInfos)
+      if(sigInfo==null)
+        throw new HdbFailed("findErrors(): sigInfos contains a null item");
+
+    checkDates(startDate, stopDate);
+    HdbRequest.checkCurrent();
+
+    HdbDataSet[] ret = findErrorsFromDB(sigInfos, startDate, stopDate);
+    for(int i=0;i<ret.length;i++)
+      ret[i].setSigInfo(sigInfos[i]);
+    return ret;
+
+  }
+
+  /**
+   * Fetches the failed samples of the given signals, by default the data are read and
+   * only failed samples are kept.
+   */
+  HdbDataSet[] findErrorsFromDB(SignalInfo[] sigInfos,
+                                String startDate,
+                                String stopDate) throws HdbFailed {
+
+    HdbDataSet[] ret = new HdbDataSet[sigInfos.length];
+    for(int i=0;i<sigInfos.length;i++) {
+      ret[i] = new HdbDataSet();
+      HdbDataCursor cursor = openCursor(sigInfos[i], startDate, stopDate);
+      try {
+        while (cursor.hasNext()) {
+          HdbData d = cursor.next();
+          if (d.hasFailed())
+            ret[i].add(d);
+        }
+      } finally {
+        cursor.close();
+      }
+    }
+    return ret;
+
+  }
+
+  /**
+   * Enables the signal info cache used by getSigInfo(), getSigInfos() and the
+   * extraction methods taking attribute names. Attribute ids and types almost never
+   * change, entries expire after the given time to live and can be invalidated
+   * (eg: after an attribute has been renamed or re-created). Disabled by default.
+   * @param maxSize Maximum number of cached signals, 0 disables the cache
+   * @param ttl Time to live of the entries in milliseconds, 0 for no expiry
+   * @throws HdbFailed In case of failure
+   */
+  public void setSigInfoCache(int maxSize, long ttl) throws HdbFailed {
+    if(maxSize<0)
+      throw new HdbFailed("setSigInfoCache(): maxSize must be positive or zero");
+    if(ttl<0)
+      throw new HdbFailed("setSigInfoCache(): ttl must be positive or zero");
+    sigInfoCache = (maxSize==0) ? null : new SigInfoCache(maxSize, ttl);
+  }
+
+  /**
+   * Returns true if the signal info cache is enabled
+   */
+  public boolean isSigInfoCacheEnabled() {
+    return sigInfoCache != null;
+  }
+
+  /**
+   * Removes the given attribute from the signal info cache
+   * @param attName The fully qualified tango attribute name (eg: tango://hostname:port/domain/family/member/attname)
+   */
+  public void invalidateSigInfo(String attName) {
+    SigInfoCache cache = sigInfoCache;
+    if(cache!=null && attName!=null)
+      cache.invalidate(attName);
+  }
+
+  /**
+   * Clears the signal info cache
+   */
+  public void invalidateSigInfoCache() {
+    SigInfoCache cache = sigInfoCache;
+    if(cache!=null)
+      cache.clear();
+  }
+
+  /**
+   * Fills the signal info cache with the attributes returned by getAttributeList(),
+   * up to the cache size.
+   * @return The number of cached signals
+   * @throws HdbFailed In case of failure or if the cache is not enabled
+   */
+  public int warmUpSigInfoCache() throws HdbFailed {
+
+    SigInfoCache cache = sigInfoCache;
+    if(cache==null)
+      throw new HdbFailed("warmUpSigInfoCache(): signal info cache not enabled");
+
+    String[] names = getAttributeList();
+    int nb = Math.min(names.length, cache.getMaxSize());
+    getSigInfos(Arrays.asList(names).subList(0, nb));
+    return cache.size();
+
+  }
+
+  /**
+   * Returns the number of signal info cache hits since the cache was enabled
+   */
+  public long getSigInfoCacheHits() {
+    SigInfoCache cache = sigInfoCache;
+    return (cache==null) ? 0 : cache.getHits();
+  }
+
+  /**
+   * Returns the number of signal info cache misses since the cache was enabled
+   */
+  public long getSigInfoCacheMisses() {
+    SigInfoCache cache = sigInfoCache;
+    return (cache==null) ? 0 : cache.getMisses();
+  }
+
+  /**
+   * Sets the decimation applied by getData() to numeric scalar signals (DOUBLE, FLOAT and
+   * integer types), other signals are not decimated. Default is no decimation.
+   * @param mode Decimation mode
+   * @param nbBucket Number of time buckets (eg: the chart width in pixels)
+   * @throws HdbFailed If the number of buckets is not positive
+   */
+  public void setDecimation(Decimation mode, int nbBucket) throws HdbFailed {
+    if(mode!=Decimation.NONE && nbBucket<=0)
+      throw new HdbFailed("setDecimation(): nbBucket must be positive");
+    decimation = (mode==null) ? Decimation.NONE : mode;
+    decimationBuckets = nbBucket;
+  }
+
+  /**
+   * Returns the decimation applied by getData()
+   */
+  public Decimation getDecimation() {
+    return decimation;
+  }
+
+  /**
+   * Returns the number of time buckets used by getData() decimation
+   */
+  public int getDecimationBuckets() {
+    return decimationBuckets;
+  }
 
   /**
    * Sets the extra point lookup period.
@@ -445,16 +1442,20 @@ public abstract class HdbReader {
 
     Date d0,d1;
 
-    try {
-      d0 = Hdb.hdbDateFormat.parse(startDate);
-    } catch( ParseException e ) {
-      throw new HdbFailed("Wrong start date format : " + e.getMessage());
-    }
+    synchronized (Hdb.hdbDateFormat) {
+
+      try {
+        d0 = Hdb.hdbDateFormat.parse(startDate);
+      } catch (ParseException e) {
+        throw new HdbFailed("Wrong start date format : " + e.getMessage());
+      }
+
+      try {
+        d1 = Hdb.hdbDateFormat.parse(stopDate);
+      } catch (ParseException e) {
+        throw new HdbFailed("Wrong stop date format : " + e.getMessage());
+      }
 
-    try {
-      d1 = Hdb.hdbDateFormat.parse(stopDate);
-    } catch( ParseException e ) {
-      throw new HdbFailed("Wrong stop date format : " + e.getMessage());
     }
 
     if(d1.compareTo(d0)<=0) {
@@ -476,7 +1477,7 @@ public abstract class HdbReader {
    * @return
    */
   public boolean hasProgressListener() {
-    return (prgListeners!=null) && (prgListeners.size()>0);
+    return !prgListeners.isEmpty();
   }
 
   /**
@@ -484,10 +1485,7 @@ public abstract class HdbReader {
    * @param l HdbProgressListener to be added
    */
   public void addProgressListener(HdbProgressListener l) {
-    if(prgListeners==null)
-      prgListeners = new ArrayList<HdbProgressListener>();
-    if(!prgListeners.contains(l))
-      prgListeners.add(l);
+    prgListeners.addIfAbsent(l);
   }
 
   /**
@@ -495,16 +1493,200 @@ public abstract class HdbReader {
    * @param l HdbProgressListener to be removed
    */
   public void removeProgressListener(HdbProgressListener l) {
-    if(prgListeners!=null)
-      prgListeners.remove(l);
+    prgListeners.remove(l);
   }
 
   // Send progress listener event
   void fireProgressListener(double p) {
-    if(prgListeners==null)
+    if(progressMuted.get())
       return;
     for(HdbProgressListener l:prgListeners)
-      l.progress(this,p,currentRequest,totalRequest);
+      l.progress(this,p,currentRequest.get(),totalRequest.get());
+  }
+
+  // Progress of an extraction estimated from the time of the last data read, relative to
+  // the requested interval. No row count is needed, data are assumed evenly spread in time.
+  final class TimeProgress {
+
+    private final long start;
+    private final double span;
+    private int nbRow = 0;
+
+    TimeProgress(String startDate, String stopDate) throws HdbFailed {
+      start = parseTime(startDate);
+      span = Math.max(1, parseTime(stopDate) - start);
+    }
+
+    void update(HdbData data) {
+      if (nbRow++ % PROGRESS_NBROW == 0 && hasProgressListener()) {
+        double p = (double)(data.getDataTime() - start) / span;
+        fireProgressListener(Math.max(0.0, Math.min(1.0, p)));
+      }
+    }
+
+  }
+
+  // Converts a date (eg: "10/07/2014 10:00:00") to microseconds since epoch
+  static long parseTime(String date) throws HdbFailed {
+    synchronized (Hdb.hdbDateFormat) {
+      try {
+        return Hdb.hdbDateFormat.parse(date).getTime() * 1000;
+      } catch (ParseException e) {
+        throw new HdbFailed("Wrong date format : " + e.getMessage());
+      }
+    }
+  }
+
+  // Returns the given value or, if not set, the value of the environment variable or java property
+  static String getPropertyOrDefault(String property, String value, String default_value)
+  {
+    String ret = value;
+    if(ret==null || ret.isEmpty()) {
+      ret = System.getenv(property);
+      if (ret==null || ret.isEmpty()) {
+        ret = System.getProperty(property);
+        if (ret==null || ret.isEmpty())
+          ret = default_value;
+      }
+    }
+    return ret;
+  }
+
+  // Returns the integer value of the environment variable or java property
+  static int getIntPropertyOrDefault(String property, int default_value) throws HdbFailed
+  {
+    String str = getPropertyOrDefault(property, null, null);
+    if(str==null)
+      return default_value;
+    try {
+      return Integer.parseInt(str.trim());
+    } catch (NumberFormatException e) {
+      throw new HdbFailed("Invalid " + property + " variable " + e.getMessage());
+    }
+  }
+
+  // Executor of the asynchronous API, a fixed number of threads with a bounded queue
+  synchronized ExecutorService getAsyncExecutor() throws HdbFailed {
+
+    if(asyncExecutor==null) {
+      int nbThread = Math.max(1, getIntPropertyOrDefault("HDB_ASYNC_THREADS", DEFAULT_ASYNC_THREADS));
+      int queueSize = Math.max(1, getIntPropertyOrDefault("HDB_ASYNC_QUEUE", DEFAULT_ASYNC_QUEUE));
+      asyncExecutor = new ThreadPoolExecutor(nbThread, nbThread, 60, TimeUnit.SECONDS,
+          new ArrayBlockingQueue<Runnable>(queueSize), daemonThreadFactory("HdbReader-async"));
+      asyncExecutor.allowCoreThreadTimeOut(true);
+    }
+    return asyncExecutor;
+
+  }
+
+  // Executor of the concurrent extractions, getConcurrency() threads shared by all calls.
+  // It is distinct from the asynchronous executor as asynchronous calls wait for extractions.
+  synchronized ExecutorService getExtractExecutor() {
+
+    int nbThread = concurrency;
+    if(extractExecutor==null) {
+      extractExecutor = new ThreadPoolExecutor(nbThread, nbThread, 60, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<Runnable>(), daemonThreadFactory("HdbReader-extract"));
+      extractExecutor.allowCoreThreadTimeOut(true);
+    } else if(extractExecutor.getMaximumPoolSize()<nbThread) {
+      extractExecutor.setMaximumPoolSize(nbThread);
+      extractExecutor.setCorePoolSize(nbThread);
+    } else if(extractExecutor.getMaximumPoolSize()>nbThread) {
+      extractExecutor.setCorePoolSize(nbThread);
+      extractExecutor.setMaximumPoolSize(nbThread);
+    }
+    return extractExecutor;
+
+  }
+
+  // Runs a blocking call on the asynchronous executor, cancelling the future interrupts the call.
+  // The call runs under the request of the calling thread.
+  <T> CompletableFuture<T> supplyAsync(Callable<T> call) {
+
+    CompletableFuture<T> ret = new CompletableFuture<T>();
+    HdbRequest request = HdbRequest.current();
+    try {
+      Future<?> task = getAsyncExecutor().submit(() -> {
+        if (ret.isDone())
+          return;
+        HdbRequest.attach(request);
+        try {
+          ret.complete(call.call());
+        } catch (Throwable e) {
+          ret.completeExceptionally(e);
+        } finally {
+          HdbRequest.attach(null);
+        }
+      });
+      ret.whenComplete((r, e) -> {
+        if (ret.isCancelled())
+          task.cancel(true);
+      });
+    } catch (HdbFailed e) {
+      ret.completeExceptionally(e);
+    } catch (RejectedExecutionException e) {
+      ret.completeExceptionally(new HdbFailed("Too many asynchronous requests"));
+    }
+    return ret;
+
+  }
+
+  // Chains two asynchronous calls, cancelling the returned future cancels the running one
+  static <A, B> CompletableFuture<B> compose(CompletableFuture<A> first, Function<A, CompletableFuture<B>> next) {
+
+    CompletableFuture<B> ret = new CompletableFuture<B>();
+    AtomicReference<CompletableFuture<B>> second = new AtomicReference<CompletableFuture<B>>();
+
+    first.whenComplete((a, e) -> {
+      if (e != null) {
+        ret.completeExceptionally(unwrap(e));
+        return;
+      }
+      CompletableFuture<B> f = next.apply(a);
+      second.set(f);
+      if (ret.isCancelled())
+        f.cancel(true);
+      f.whenComplete((b, e2) -> {
+        if (e2 != null)
+          ret.completeExceptionally(unwrap(e2));
+        else
+          ret.complete(b);
+      });
+    });
+
+    ret.whenComplete((b, e) -> {
+      if (ret.isCancelled()) {
+        first.cancel(true);
+        CompletableFuture<B> f = second.get();
+        if (f != null)
+          f.cancel(true);
+      }
+    });
+
+    return ret;
+
+  }
+
+  static <T> CompletableFuture<T> failedFuture(Throwable e) {
+    CompletableFuture<T> ret = new CompletableFuture<T>();
+    ret.completeExceptionally(e);
+    return ret;
+  }
+
+  private static Throwable unwrap(Throwable e) {
+    if (e instanceof CompletionException && e.getCause() != null)
+      return e.getCause();
+    return e;
+  }
+
+  // Creates daemon threads for the reader internal executors
+  static ThreadFactory daemonThreadFactory(final String name) {
+    final AtomicInteger count = new AtomicInteger(0);
+    return r -> {
+      Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    };
   }
 
   // Prepare SigInfo
@@ -520,6 +1702,14 @@ public abstract class HdbReader {
 
   }
 
+  /**
+   * Returns true if failed samples are not requested by the calling thread, readers may
+   * then filter them in the query. They are anyway removed from the result.
+   */
+  boolean isIgnoringErrors() {
+    return ignoreErrors.get();
+  }
+
   // Fetch data
   private HdbDataSet getDataPrivate(SignalInfo sigInfo,
                                     String startDate,
@@ -549,20 +1739,25 @@ public abstract class HdbReader {
 
     } else {
 
-      result = getDataFromDB(sigInfo, startDate, stopDate);
+      if (decimation != Decimation.NONE && Decimator.isSupported(sigInfo))
+        result = getDecimatedData(sigInfo, startDate, stopDate, decimationBuckets, decimation);
+      else
+        result = getDataFromDB(sigInfo, startDate, stopDate);
 
       if (result.isEmpty() && extraPointEnabled) {
 
         // Try to find an extra point
-        Date d;
-        try {
-          d = Hdb.hdbDateFormat.parse(startDate);
-        } catch (ParseException e) {
-          throw new HdbFailed("Wrong startDate format : " + e.getMessage());
+        String newStartDate;
+        synchronized (Hdb.hdbDateFormat) {
+          Date d;
+          try {
+            d = Hdb.hdbDateFormat.parse(startDate);
+          } catch (ParseException e) {
+            throw new HdbFailed("Wrong startDate format : " + e.getMessage());
+          }
+          d.setTime(d.getTime() - extraPointLookupPeriod * 1000);
+          newStartDate = Hdb.hdbDateFormat.format(d);
         }
-        d.setTime(d.getTime() - extraPointLookupPeriod * 1000);
-
-        String newStartDate = Hdb.hdbDateFormat.format(d);
         stopDate = startDate;
 
         result = getDataFromDB(sigInfo, newStartDate, stopDate);
@@ -583,136 +1778,121 @@ public abstract class HdbReader {
 
   }
 
-  // Return true if HdbDataSet[i!=minIdx] start time is lower than t0
-  private boolean isBefore(HdbDataSet[] ret,int minIdx,long t0) {
+  // Fetch data of several signals, concurrently if enabled and supported by the reader
+  private HdbDataSet[] getDataPrivate(final SignalInfo[] sigInfos,
+                                      final String[] startDates,
+                                      final String[] stopDates,
+                                      final boolean noError) throws HdbFailed {
 
-    boolean ok=true;
+    final int nb = sigInfos.length;
+    HdbDataSet[] ret = new HdbDataSet[nb];
+    int nbThread = Math.min(concurrency, nb);
 
-    for(int i=0;i<ret.length && ok;i++) {
-      if(i!=minIdx)
-        ok = ok && (t0 < ret[i].get(0).getDataTime());
+    if (nbThread <= 1 || !isFeatureSupported(Feature.CONCURRENT_EXTRACTION)) {
+      totalRequest.set(nb);
+      ignoreErrors.set(noError);
+      try {
+        for (int i = 0; i < nb; i++) {
+          HdbRequest.checkCurrent();
+          currentRequest.set(i + 1);
+          ret[i] = getDataPrivate(sigInfos[i], startDates[i], stopDates[i]);
+        }
+      } finally {
+        ignoreErrors.set(false);
+      }
+      return ret;
     }
 
-    return ok;
-
-  }
+    // Worker threads run under the request of the calling thread
+    final HdbRequest request = HdbRequest.current();
 
-  // Correlate the HdbDataSet
-  private void correlate(HdbDataSet[] ret) throws HdbFailed {
+    ExecutorService executor = getExtractExecutor();
+    ArrayList<Future<HdbDataSet>> futures = new ArrayList<Future<HdbDataSet>>();
+    try {
 
-    // Select the base HdbDataSet
-    int min = Integer.MAX_VALUE;
-    int minIdx = 0;
-    for(int i=0;i<ret.length;i++) {
-      if(ret[i].size()<min) {
-        minIdx = i;
-        min = ret[i].size();
+      for (int i = 0; i < nb; i++) {
+        final int idx = i;
+        futures.add(executor.submit(() -> {
+          totalRequest.set(nb);
+          currentRequest.set(idx + 1);
+          ignoreErrors.set(noError);
+          HdbRequest.attach(request);
+          try {
+            HdbRequest.checkCurrent();
+            HdbDataSet result = getDataPrivate(sigInfos[idx], startDates[idx], stopDates[idx]);
+            // Signal done
+            if (hasProgressListener())
+              fireProgressListener(1.0);
+            return result;
+          } finally {
+            // Threads are reused by other extractions
+            ignoreErrors.set(false);
+            totalRequest.set(1);
+            currentRequest.set(1);
+            HdbRequest.attach(null);
+          }
+        }));
       }
-    }
 
-    // We have to prevent that HdbDataSet.getBefore() will never return null or
-    // an 'non significant' value
-    boolean ok = false;
-    while(!ok && ret[minIdx].size()>0) {
-      long t0 = ret[minIdx].get(0).getDataTime();
-      if(isBefore(ret,minIdx,t0))
-        ret[minIdx].removeFirst();
-      else
-        ok = true;
+      // Results are returned in the input order
+      for (int i = 0; i < nb; i++)
+        ret[i] = futures.get(i).get();
+
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof HdbFailed)
+        throw (HdbFailed) cause;
+      throw new HdbFailed("Failed to get data: " + cause);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new HdbFailed("Data extraction interrupted");
+    } finally {
+      // Signals not yet fetched are abandoned on failure
+      for (Future<HdbDataSet> f : futures)
+        f.cancel(true);
     }
 
-    int newLength = ret[minIdx].size();
+    return ret;
 
-    // Now truncate all other HdbDataSet
-    for(int i=0;i<ret.length;i++) {
-      if(i!=minIdx) {
-        ArrayList<HdbData> newSet = new ArrayList<HdbData>();
-        for(int j=0;j<newLength;j++) {
-          long t = ret[minIdx].get(j).getDataTime();
-          HdbData b = ret[i].getBefore(t).copy();
-          newSet.add(b);
-        }
+  }
 
-        HdbDataSet newDataSet = new HdbDataSet(newSet);
-        newDataSet.setSigInfo(ret[i].getSigInfo());
-        ret[i] = newDataSet;
+  // Cursor over data already in memory
+  private static class ListCursor implements HdbDataCursor {
 
-      }
-    }
+    private final Iterator<HdbData> it;
 
-    // Update all timetamps
-    for(int i=0;i<ret.length;i++) {
-      if(i!=minIdx) {
-        for(int j=0;j<newLength;j++) {
-          long t = ret[minIdx].get(j).getDataTime();
-          ret[i].get(j).setDataTime(t);
-        }
-      }
+    ListCursor(List<HdbData> data) {
+      it = data.iterator();
     }
 
-  }
-
-  private void insertTime(ArrayList<Long> list,long value) {
-
-    int low = 0;
-    int high = list.size()-1;
+    public boolean hasNext() {
+      return it.hasNext();
+    }
 
-    while (low <= high) {
-      int mid = (low + high) >>> 1;
-      long midVal = list.get(mid);
+    public HdbData next() throws HdbFailed {
+      if(!it.hasNext())
+        throw new HdbFailed("No more data");
+      return it.next();
+    }
 
-      if (midVal < value)
-        low = mid + 1;
-      else if (midVal > value)
-        high = mid - 1;
-      else
-        return; // item found (do nothing)
+    public void close() {
     }
 
-    // r is the insertion position
-    int r = -(low + 1);
-    if(r<0) r= -(r+1);
+  }
+
+  // Correlate the HdbDataSet
+  private void correlate(HdbDataSet[] ret) throws HdbFailed {
 
-    list.add(r,value);
+    HdbDataSet[] correlated = HdbAlignedDataSet.correlated(ret, -1).toDataSets();
+    System.arraycopy(correlated, 0, ret, 0, ret.length);
 
   }
 
   // Fill the HdbDataSet
   private void fill(HdbDataSet[] ret) throws HdbFailed {
 
-    // Ensure that no DataSet is empty
-    for(int i=0;i<ret.length;i++) {
-      if(ret[i].isEmpty())
-        throw new HdbFailed("FILLED mode cannot be done on empty HdbDataSet");
-    }
-
-    // Start by creating an array of all timestamps
-    ArrayList<Long> allTime = new ArrayList<Long>();
-    for(int i=0;i<ret.length;i++) {
-      for(int j=0;j<ret[i].size();j++) {
-        HdbData d = ret[i].get(j);
-        insertTime(allTime,d.getDataTime());
-      }
-    }
-
-    // Now extend all HdbDataSet
-    for(int i=0;i<ret.length;i++) {
-      ArrayList<HdbData> newSet = new ArrayList<HdbData>();
-      for(int j=0;j<allTime.size();j++) {
-        HdbData b = ret[i].getBefore(allTime.get(j)).copy();
-        newSet.add(b);
-      }
-      HdbDataSet newDataSet = new HdbDataSet(newSet);
-      newDataSet.setSigInfo(ret[i].getSigInfo());
-      ret[i] = newDataSet;
-    }
-
-    // Update all timetamps
-    for(int i=0;i<ret.length;i++) {
-      for(int j=0;j<allTime.size();j++) {
-        ret[i].get(j).setDataTime(allTime.get(j));
-      }
-    }
+    HdbDataSet[] filled = HdbAlignedDataSet.filled(ret).toDataSets();
+    System.arraycopy(filled, 0, ret, 0, ret.length);
 
   }
 
@@ -0,0 +1,191 @@
+//+======================================================================
+// $Source: $
+//
+// Project:   Tango
+//
+// Description:  java source code for HDB extraction library.
+//
+// $Author: pons $
+//
+// Copyright (C) :      2015
+//						European Synchrotron Radiation Facility
+//                      BP 220, Grenoble 38043
+//                      FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision $
+//
+//-======================================================================
+package org.tango.jhdb;
+
+import java.util.ArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cancellation handle of data requests. A request is given to getData(), stream() or
+ * getDataAsync() and cancelling it aborts the running database queries, the aborted
+ * call fails with HdbFailed. A request created with a timeout is cancelled when its
+ * deadline is reached. A request can be shared by several calls (eg: all extractions
+ * of a viewer refresh) and cannot be reused once cancelled.
+ */
+public class HdbRequest {
+
+  // Timer of the request deadlines
+  private static ScheduledThreadPoolExecutor timer = null;
+
+  // Request of the calling thread, read by the readers when a query is started
+  private static final ThreadLocal<HdbRequest> current = new ThreadLocal<HdbRequest>();
+
+  private final long deadline;
+  private final ScheduledFuture<?> timeoutTask;
+  private final ArrayList<Runnable> handlers = new ArrayList<Runnable>();
+  private volatile boolean cancelled = false;
+  private volatile boolean timedOut = false;
+
+  /**
+   * Creates a request without deadline
+   */
+  public HdbRequest() {
+    deadline = 0;
+    timeoutTask = null;
+  }
+
+  /**
+   * Creates a request which is cancelled after the given time
+   * @param timeout Timeout in milliseconds, counted from now
+   * @throws HdbFailed In case of failure
+   */
+  public HdbRequest(long timeout) throws HdbFailed {
+    if(timeout<=0)
+      throw new HdbFailed("HdbRequest(): timeout must be positive");
+    deadline = System.currentTimeMillis() + timeout;
+    timeoutTask = getTimer().schedule(() -> abort(true), timeout, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Cancels the request and aborts the running queries
+   */
+  public void cancel() {
+    abort(false);
+  }
+
+  /**
+   * Returns true if the request has been cancelled or has timed out
+   */
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * Returns true if the request has been cancelled because its deadline was reached
+   */
+  public boolean isTimedOut() {
+    return timedOut;
+  }
+
+  /**
+   * Returns the deadline (in milliseconds since epoch), 0 when the request has no deadline
+   */
+  public long getDeadline() {
+    return deadline;
+  }
+
+  private void abort(boolean timeout) {
+
+    Runnable[] toRun;
+    synchronized (handlers) {
+      if(cancelled)
+        return;
+      timedOut = timeout;
+      cancelled = true;
+      toRun = handlers.toArray(new Runnable[0]);
+      handlers.clear();
+    }
+
+    if(timeoutTask!=null)
+      timeoutTask.cancel(false);
+
+    for(Runnable r : toRun) {
+      try {
+        r.run();
+      } catch (RuntimeException e) {
+        System.out.println("Warning, failed to abort query: " + e.getMessage());
+      }
+    }
+
+  }
+
+  // Registers an action aborting a running query, it runs at once if the request is already cancelled
+  void addCancelHandler(Runnable r) {
+
+    synchronized (handlers) {
+      if(!cancelled) {
+        handlers.add(r);
+        return;
+      }
+    }
+    r.run();
+
+  }
+
+  void removeCancelHandler(Runnable r) {
+    synchronized (handlers) {
+      handlers.remove(r);
+    }
+  }
+
+  // Error of the calls aborted by this request
+  HdbFailed failure() {
+    return new HdbFailed(timedOut ? "Request timed out" : "Request cancelled");
+  }
+
+  void check() throws HdbFailed {
+    if(cancelled)
+      throw failure();
+  }
+
+  static HdbRequest current() {
+    return current.get();
+  }
+
+  // Attaches a request to the calling thread and returns the previous one
+  static HdbRequest attach(HdbRequest request) {
+    HdbRequest previous = current.get();
+    if(request==null)
+      current.remove();
+    else
+      current.set(request);
+    return previous;
+  }
+
+  static void checkCurrent() throws HdbFailed {
+    HdbRequest r = current.get();
+    if(r!=null)
+      r.check();
+  }
+
+  private static synchronized ScheduledThreadPoolExecutor getTimer() {
+    if(timer==null) {
+      timer = new ScheduledThreadPoolExecutor(1, HdbReader.daemonThreadFactory("HdbRequest-timer"));
+      timer.setRemoveOnCancelPolicy(true);
+    }
+    return timer;
+  }
+
+}
@@ -60,7 +60,10 @@ public class HdbSigParam {
 
     long ms = time/1000;
     Date d = new Date(ms);
-    String dStr = Hdb.hdbDateFormat.format(d);
+    String dStr;
+    synchronized (Hdb.hdbDateFormat) {
+      dStr = Hdb.hdbDateFormat.format(d);
+    }
     String sStr = String.format("%06d",time%1000000);
     return dStr+"."+sStr;
 
@@ -0,0 +1,73 @@
+//+======================================================================
+// $Source: $
+//
+// Project:   Tango
+//
+// Description:  java source code for HDB extraction library.
+//
+// $Author: pons $
+//
+// Copyright (C) :      2015
+//						European Synchrotron Radiation Facility
+//                      BP 220, Grenoble 38043
+//                      FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision $
+//
+//-======================================================================
+package org.tango.jhdb;
+
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Map with a bounded size, the least recently accessed entry is removed when full.
+ * Not synchronized.
+ */
+class LruCache<K, V> extends LinkedHashMap<K, V> {
+
+  private static final long serialVersionUID = 1L;
+
+  private final int maxSize;
+
+  LruCache(int maxSize) {
+    super(16, 0.75f, true);
+    this.maxSize = Math.max(1, maxSize);
+  }
+
+  int getMaxSize() {
+    return maxSize;
+  }
+
+  // Called when a value is removed to make room for a new one
+  void evicted(V value) {
+  }
+
+  @Override
+  protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+
+    if (size() > maxSize) {
+      evicted(eldest.getValue());
+      return true;
+    }
+    return false;
+
+  }
+
+}
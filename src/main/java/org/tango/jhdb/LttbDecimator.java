@@ -0,0 +1,183 @@
+//+======================================================================
+// $Source: $
+//
+// Project:   Tango
+//
+// Description:  java source code for HDB extraction library.
+//
+// $Author: pons $
+//
+// Copyright (C) :      2015
+//						European Synchrotron Radiation Facility
+//                      BP 220, Grenoble 38043
+//                      FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision $
+//
+//-======================================================================
+package org.tango.jhdb;
+
+import org.tango.jhdb.data.HdbData;
+
+import java.util.ArrayList;
+
+/**
+ * Largest-Triangle-Three-Buckets decimation, one sample is kept per bucket. The sample of
+ * a bucket is the one forming the largest triangle with the sample selected in the previous
+ * bucket and the average of the next bucket. The first and last samples are always kept.
+ * <p>
+ * The selection of a bucket is done once the next bucket is complete. For a given triangle
+ * base, the area is a linear function of the candidate, so the best candidate is a vertex of
+ * the convex hull of the bucket: only the hull (built incrementally as samples come in time
+ * order) and the sums of the next bucket are kept instead of all the bucket samples.
+ */
+class LttbDecimator extends Decimator {
+
+  private static class Vertex {
+    final HdbData d;
+    final double x;
+    final double y;
+    Vertex(HdbData d, double x, double y) {
+      this.d = d;
+      this.x = x;
+      this.y = y;
+    }
+  }
+
+  private static class Bucket {
+
+    final int index;
+    private double sumX = 0;
+    private double sumY = 0;
+    private int count = 0;
+    private final ArrayList<Vertex> lower = new ArrayList<Vertex>();
+    private final ArrayList<Vertex> upper = new ArrayList<Vertex>();
+
+    Bucket(int index) {
+      this.index = index;
+    }
+
+    // Monotone chain, samples come with increasing x
+    void add(Vertex v) {
+
+      sumX += v.x;
+      sumY += v.y;
+      count++;
+      while(lower.size() >= 2 && cross(lower.get(lower.size() - 2), lower.get(lower.size() - 1), v) <= 0)
+        lower.remove(lower.size() - 1);
+      lower.add(v);
+      while(upper.size() >= 2 && cross(upper.get(upper.size() - 2), upper.get(upper.size() - 1), v) >= 0)
+        upper.remove(upper.size() - 1);
+      upper.add(v);
+
+    }
+
+    double avgX() {
+      return sumX / count;
+    }
+
+    double avgY() {
+      return sumY / count;
+    }
+
+    // Hull vertex forming the largest triangle with a and (cx,cy)
+    Vertex select(Vertex a, double cx, double cy) {
+
+      Vertex best = lower.get(0);
+      double bestArea = -1;
+      for(int i = 0; i < 2; i++) {
+        for(Vertex v : (i == 0) ? lower : upper) {
+          double area = Math.abs((a.x - cx) * (v.y - a.y) - (a.x - v.x) * (cy - a.y));
+          if(area > bestArea) {
+            bestArea = area;
+            best = v;
+          }
+        }
+      }
+      return best;
+
+    }
+
+    private static double cross(Vertex o, Vertex a, Vertex b) {
+      return (a.x - o.x) * (b.y - o.y) - (a.y - o.y) * (b.x - o.x);
+    }
+
+  }
+
+  // Last selected sample
+  private Vertex selected = null;
+  // Complete bucket waiting for the average of the next one
+  private Bucket pending = null;
+  private Bucket current = null;
+  private Vertex last = null;
+
+  LttbDecimator(SignalInfo info, long start, long stop, int nbBucket) {
+    super(info, start, stop, nbBucket);
+  }
+
+  void addSample(HdbData d, double v) {
+
+    Vertex vx = new Vertex(d, (double)(d.getDataTime() - start), v);
+    if(selected == null) {
+      selected = vx;
+      result.add(d);
+      return;
+    }
+
+    int b = bucketOf(d.getDataTime());
+    if(current == null || current.index != b) {
+      if(current != null)
+        complete(current);
+      current = new Bucket(b);
+    }
+    current.add(vx);
+    last = vx;
+
+  }
+
+  // A bucket is complete, the pending one can be selected
+  private void complete(Bucket b) {
+
+    if(pending != null)
+      select(pending, b.avgX(), b.avgY());
+    pending = b;
+
+  }
+
+  private void select(Bucket b, double cx, double cy) {
+    selected = b.select(selected, cx, cy);
+    result.add(selected.d);
+  }
+
+  void flush() {
+
+    if(current != null) {
+      complete(current);
+      current = null;
+    }
+    if(pending != null) {
+      // Last bucket, the triangle ends on the last sample
+      select(pending, last.x, last.y);
+      if(selected != last)
+        result.add(last.d);
+      pending = null;
+    }
+
+  }
+
+}
@@ -0,0 +1,131 @@
+//+======================================================================
+// $Source: $
+//
+// Project:   Tango
+//
+// Description:  java source code for HDB extraction library.
+//
+// $Author: pons $
+//
+// Copyright (C) :      2015
+//						European Synchrotron Radiation Facility
+//                      BP 220, Grenoble 38043
+//                      FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision $
+//
+//-======================================================================
+package org.tango.jhdb;
+
+import org.tango.jhdb.data.HdbData;
+import org.tango.jhdb.data.HdbScalarData;
+
+import java.util.Collection;
+
+/**
+ * M4 decimation: the first, minimum, maximum and last samples of each bucket are kept,
+ * which preserves the envelope of the plotted signal with at most 4 samples per bucket.
+ */
+class M4Decimator extends Decimator {
+
+  // Current bucket
+  private int bucket = -1;
+  private HdbData first;
+  private HdbData min;
+  private HdbData max;
+  private HdbData last;
+  private double minValue;
+  private double maxValue;
+
+  M4Decimator(SignalInfo info, long start, long stop, int nbBucket) {
+    super(info, start, stop, nbBucket);
+  }
+
+  void addSample(HdbData d, double v) {
+
+    int b = bucketOf(d.getDataTime());
+    if(b != bucket) {
+      flush();
+      bucket = b;
+      first = min = max = d;
+      minValue = maxValue = v;
+    } else {
+      if(v < minValue) {
+        min = d;
+        minValue = v;
+      }
+      if(v > maxValue) {
+        max = d;
+        maxValue = v;
+      }
+    }
+    last = d;
+
+  }
+
+  void flush() {
+    if(first != null)
+      addBucket(result, first, min, max, last);
+    first = min = max = last = null;
+  }
+
+  /**
+   * Adds the samples of a bucket in time order, samples having the same time are added once
+   */
+  static void addBucket(Collection<HdbData> out, HdbData first, HdbData min, HdbData max, HdbData last) {
+
+    HdbData lo = min;
+    HdbData hi = max;
+    if(hi.getDataTime() < lo.getDataTime()) {
+      lo = max;
+      hi = min;
+    }
+    long t = first.getDataTime();
+    out.add(first);
+    if(lo.getDataTime() != t) {
+      out.add(lo);
+      t = lo.getDataTime();
+    }
+    if(hi.getDataTime() != t) {
+      out.add(hi);
+      t = hi.getDataTime();
+    }
+    if(last.getDataTime() != t)
+      out.add(last);
+
+  }
+
+  /**
+   * Creates a sample of a bucket aggregated by the database. The write value is not
+   * decimated and is left unset (NaN or 0).
+   */
+  static HdbData createSample(SignalInfo info, long time, double value) throws HdbFailed {
+    HdbScalarData d = (HdbScalarData) HdbData.createData(info);
+    d.parseHeader(time, 0, 0, null, 0);
+    d.setDouble(value, Double.NaN);
+    return d;
+  }
+
+  static HdbData createSample(SignalInfo info, long time, long value) throws HdbFailed {
+    HdbScalarData d = (HdbScalarData) HdbData.createData(info);
+    d.parseHeader(time, 0, 0, null, 0);
+    d.setLong(value, 0);
+    return d;
+  }
+
+}
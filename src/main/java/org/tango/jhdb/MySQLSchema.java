@@ -32,11 +32,19 @@
 //-======================================================================
 package org.tango.jhdb;
 
+import org.tango.jhdb.data.HdbArrayData;
 import org.tango.jhdb.data.HdbData;
 import org.tango.jhdb.data.HdbDataSet;
+import org.tango.jhdb.data.HdbDoubleDataSet;
+import org.tango.jhdb.data.HdbScalarData;
 
 import java.sql.*;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -110,11 +118,14 @@ public class MySQLSchema extends HdbReader {
 
   };
 
-  // Notify every PROGRESS_NBROW rows
-  private final static int PROGRESS_NBROW =10000;
-  private Connection connection;
+  // Maximum length of a spectrum packed by GROUP_CONCAT (bytes)
+  private final static int GROUP_CONCAT_MAX_LEN = 64*1024*1024;
+  // Number of names per att_conf query in getSigInfos()
+  private final static int SIGINFO_BATCH_SIZE = 500;
+  private ConnectionPool pool;
   private AttributeBrowser browser=null;
   private String dbURL;
+  private volatile boolean arrayPivot;
 
   /**
    * Connects to a MySQL HDB.
@@ -184,12 +195,17 @@ public class MySQLSchema extends HdbReader {
       connectProperties.setProperty("password", passwd);
       connectProperties.setProperty("loginTimeout", Integer.toString(10));
       connectProperties.setProperty("tcpKeepAlive ", "true"); //Enable TCP keep-alive probe
+      // Server side prepared statements: values are transferred in binary form.
+      // They are cached by the connection pool, not by the driver (cachePrepStmts).
+      connectProperties.setProperty("useServerPrepStmts", "true");
+      connectProperties.setProperty("sessionVariables", "group_concat_max_len=" + GROUP_CONCAT_MAX_LEN);
+      arrayPivot = Boolean.parseBoolean(getPropertyOrDefault("HDB_MYSQL_ARRAY_PIVOT", null, "false"));
 
       // URL example: jdbc:postgresql://host:port/database
       dbURL = DEFAULT_DB_URL_PREFIX + host + ":" +
           Integer.toString(port) + "/" + db;
 
-      connection = DriverManager.getConnection(dbURL, connectProperties);
+      pool = ConnectionPool.create(dbURL, connectProperties);
 
     } catch (SQLException e) {
       throw new HdbFailed("Failed to connect to MySQL: "+e.getMessage());
@@ -198,11 +214,24 @@ public class MySQLSchema extends HdbReader {
   }
 
   public void disconnect () {
-    try {
-      connection.close();
-    } catch (SQLException e) {
-      System.out.println("Warning closing connection : " + e.getMessage());
-    }
+    pool.close();
+  }
+
+  /**
+   * Enables server side packing of spectrum data (default is false, or HDB_MYSQL_ARRAY_PIVOT).
+   * When enabled, numeric and boolean spectra are read as one row per timestamp, elements being
+   * concatenated by the server, instead of one row per element. String spectra are not affected.
+   * @param enable True to enable packing
+   */
+  public void setArrayPivot(boolean enable) {
+    arrayPivot = enable;
+  }
+
+  /**
+   * Returns true if spectrum data are packed by the server
+   */
+  public boolean isArrayPivot() {
+    return arrayPivot;
   }
 
   public String getInfo() throws HdbFailed {
@@ -220,11 +249,15 @@ public class MySQLSchema extends HdbReader {
     String query = "SELECT att_name FROM att_conf ORDER BY att_name";
 
     try {
-      Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY,ResultSet.CONCUR_READ_ONLY);
-      ResultSet resultSet = statement.executeQuery(query);
-      while (resultSet.next())
-        list.add(resultSet.getString(1));
-      statement.close();
+      pool.execute(c -> {
+        list.clear();
+        try (Statement statement = c.createStatement(ResultSet.TYPE_FORWARD_ONLY,ResultSet.CONCUR_READ_ONLY)) {
+          ResultSet resultSet = statement.executeQuery(query);
+          while (resultSet.next())
+            list.add(resultSet.getString(1));
+        }
+        return null;
+      });
     } catch (SQLException e) {
       throw new HdbFailed("Failed to retrieve attribute list: "+e.getMessage());
     }
@@ -237,7 +270,7 @@ public class MySQLSchema extends HdbReader {
 
   }
 
-  private void constructBrowser() throws HdbFailed {
+  private synchronized void constructBrowser() throws HdbFailed {
     if( browser==null )
       browser = AttributeBrowser.constructBrowser(this);
   }
@@ -267,27 +300,30 @@ public class MySQLSchema extends HdbReader {
     return browser.getNames(host, domain, family, member);
   }
 
-  public HdbSigInfo getSigInfo(String attName) throws HdbFailed {
+  HdbSigInfo getSigInfoFromDB(String attName) throws HdbFailed {
 
     SignalInfo ret = prepareSigInfo(attName);
     attName = ret.name;
 
-    String query = "SELECT att_conf.att_conf_id,att_conf_data_type.data_type FROM att_conf,att_conf_data_type WHERE " +
+    final String query = "SELECT att_conf.att_conf_id,att_conf_data_type.data_type FROM att_conf,att_conf_data_type WHERE " +
                    "att_conf.att_conf_data_type_id=att_conf_data_type.att_conf_data_type_id " +
                    "AND att_name='" + attName + "'";
 
     try {
-      Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY,ResultSet.CONCUR_READ_ONLY);
-      ResultSet resultSet = statement.executeQuery(query);
-      if(resultSet.next()) {
-        ret.sigId = resultSet.getString(1);
-        String data_type = resultSet.getString(2);
-        ret.setTypeAccessFormatFromName(data_type);
-        ret.tableName = "att_" + data_type;
-      } else {
-        throw new HdbFailed("Signal not found");
-      }
-      statement.close();
+      pool.execute(c -> {
+        try (Statement statement = c.createStatement(ResultSet.TYPE_FORWARD_ONLY,ResultSet.CONCUR_READ_ONLY)) {
+          ResultSet resultSet = statement.executeQuery(query);
+          if(resultSet.next()) {
+            ret.sigId = resultSet.getString(1);
+            String data_type = resultSet.getString(2);
+            ret.setTypeAccessFormatFromName(data_type);
+            ret.tableName = "att_" + data_type;
+          } else {
+            throw new HdbFailed("Signal not found");
+          }
+        }
+        return null;
+      });
     } catch (SQLException e) {
       throw new HdbFailed("Failed to retrieve signal id: "+e.getMessage());
     }
@@ -296,6 +332,51 @@ public class MySQLSchema extends HdbReader {
 
   }
 
+  // Names are resolved by batches of IN lists, att_name comparison follows the
+  // collation of the column so rows are matched without case.
+  void resolveSigInfos(SignalInfo[] infos) throws HdbFailed {
+
+    HashMap<String,ArrayList<SignalInfo>> byName = new HashMap<>();
+    for(SignalInfo info : infos)
+      byName.computeIfAbsent(info.name.toLowerCase(), n -> new ArrayList<>()).add(info);
+    final ArrayList<String> names = new ArrayList<>();
+    for(ArrayList<SignalInfo> list : byName.values())
+      names.add(list.get(0).name);
+
+    try {
+      pool.execute(c -> {
+        for(int start=0;start<names.size();start+=SIGINFO_BATCH_SIZE) {
+          List<String> batch = names.subList(start, Math.min(names.size(), start + SIGINFO_BATCH_SIZE));
+          String query = "SELECT att_conf.att_name,att_conf.att_conf_id,att_conf_data_type.data_type FROM att_conf,att_conf_data_type WHERE " +
+                         "att_conf.att_conf_data_type_id=att_conf_data_type.att_conf_data_type_id " +
+                         "AND att_name IN (" + String.join(",", Collections.nCopies(batch.size(), "?")) + ")";
+          // Closed on failure as well, the connection may go back to the pool
+          try (PreparedStatement statement = c.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            for(int i=0;i<batch.size();i++)
+              statement.setString(i+1, batch.get(i));
+            try (ResultSet resultSet = statement.executeQuery()) {
+              while(resultSet.next()) {
+                ArrayList<SignalInfo> list = byName.get(resultSet.getString(1).toLowerCase());
+                if(list==null)
+                  continue;
+                String data_type = resultSet.getString(3);
+                for(SignalInfo info : list) {
+                  info.sigId = resultSet.getString(2);
+                  info.setTypeAccessFormatFromName(data_type);
+                  info.tableName = "att_" + data_type;
+                }
+              }
+            }
+          }
+        }
+        return null;
+      });
+    } catch (SQLException e) {
+      throw new HdbFailed("Failed to retrieve signal ids: "+e.getMessage());
+    }
+
+  }
+
   HdbDataSet getDataFromDB(SignalInfo sigInfo,
                            String start_date,
                            String stop_date) throws HdbFailed {
@@ -325,35 +406,38 @@ public class MySQLSchema extends HdbReader {
 
     try {
 
-      Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY,ResultSet.CONCUR_READ_ONLY);
-      ResultSet rs = statement.executeQuery(query);
-      if(rs.next()) {
+      pool.execute(c -> {
+        try (Statement statement = c.createStatement(ResultSet.TYPE_FORWARD_ONLY,ResultSet.CONCUR_READ_ONLY)) {
+          ResultSet rs = statement.executeQuery(query);
+          if(rs.next()) {
+
+            ret.recvTime = timeValue(rs.getTimestamp(1));
+            ret.insertTime = timeValue(rs.getTimestamp(2));
+            ret.label = rs.getString(3);
+            ret.unit = rs.getString(4);
+            try {
+              ret.standard_unit = Double.parseDouble(rs.getString(5));
+            } catch (NumberFormatException e) {
+              ret.standard_unit = 1.0;
+            }
+            try {
+              ret.display_unit = Double.parseDouble( rs.getString(6));
+            } catch (NumberFormatException e) {
+              ret.display_unit = 1.0;
+            }
+            ret.format = rs.getString(7);
+            ret.archive_rel_change = rs.getString(8);
+            ret.archive_abs_change = rs.getString(9);
+            ret.archive_period = rs.getString(10);
+            ret.description = rs.getString(11);
+
+          } else {
+            throw new HdbFailed("Cannot get parameter for " + sigInfo.name);
+          }
 
-        ret.recvTime = timeValue(rs.getTimestamp(1));
-        ret.insertTime = timeValue(rs.getTimestamp(2));
-        ret.label = rs.getString(3);
-        ret.unit = rs.getString(4);
-        try {
-          ret.standard_unit = Double.parseDouble(rs.getString(5));
-        } catch (NumberFormatException e) {
-          ret.standard_unit = 1.0;
-        }
-        try {
-          ret.display_unit = Double.parseDouble( rs.getString(6));
-        } catch (NumberFormatException e) {
-          ret.display_unit = 1.0;
         }
-        ret.format = rs.getString(7);
-        ret.archive_rel_change = rs.getString(8);
-        ret.archive_abs_change = rs.getString(9);
-        ret.archive_period = rs.getString(10);
-        ret.description = rs.getString(11);
-
-      } else {
-        throw new HdbFailed("Cannot get parameter for " + sigInfo.name);
-      }
-
-      statement.close();
+        return null;
+      });
 
     } catch (SQLException e) {
       throw new HdbFailed("Failed to get parameter history: "+e.getMessage());
@@ -388,48 +472,118 @@ public class MySQLSchema extends HdbReader {
 
     try {
 
-      Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY,ResultSet.CONCUR_READ_ONLY);
-      ResultSet rs = statement.executeQuery(query);
-      while(rs.next()) {
+      pool.execute(c -> {
+        ret.clear();
+        try (Statement statement = c.createStatement(ResultSet.TYPE_FORWARD_ONLY,ResultSet.CONCUR_READ_ONLY)) {
+          ResultSet rs = statement.executeQuery(query);
+          while(rs.next()) {
+
+            HdbSigParam hd = new HdbSigParam(sigInfo);
+            hd.recvTime = timeValue(rs.getTimestamp(1));
+            hd.insertTime = timeValue(rs.getTimestamp(2));
+            hd.label = rs.getString(3);
+            hd.unit = rs.getString(4);
+            try {
+              hd.standard_unit = Double.parseDouble(rs.getString(5));
+            } catch (NumberFormatException e) {
+              hd.standard_unit = 1.0;
+            }
+            try {
+              hd.display_unit = Double.parseDouble( rs.getString(6));
+            } catch (NumberFormatException e) {
+              hd.display_unit = 1.0;
+            }
+            hd.format = rs.getString(7);
+            hd.archive_rel_change = rs.getString(8);
+            hd.archive_abs_change = rs.getString(9);
+            hd.archive_period = rs.getString(10);
+            hd.description = rs.getString(11);
+
+            ret.add(hd);
+
+          }
 
-        HdbSigParam hd = new HdbSigParam(sigInfo);
-        hd.recvTime = timeValue(rs.getTimestamp(1));
-        hd.insertTime = timeValue(rs.getTimestamp(2));
-        hd.label = rs.getString(3);
-        hd.unit = rs.getString(4);
-        try {
-          hd.standard_unit = Double.parseDouble(rs.getString(5));
-        } catch (NumberFormatException e) {
-          hd.standard_unit = 1.0;
-        }
-        try {
-          hd.display_unit = Double.parseDouble( rs.getString(6));
-        } catch (NumberFormatException e) {
-          hd.display_unit = 1.0;
         }
-        hd.format = rs.getString(7);
-        hd.archive_rel_change = rs.getString(8);
-        hd.archive_abs_change = rs.getString(9);
-        hd.archive_period = rs.getString(10);
-        hd.description = rs.getString(11);
+        return null;
+      });
 
-        ret.add(hd);
+    } catch (SQLException e) {
+      throw new HdbFailed("Failed to get parameter history: "+e.getMessage());
+    }
 
+    return ret;
+  }
+
+  // Errors of all signals are fetched with a single query (one sub query per data table),
+  // the (att_conf_id,data_time) primary key restricts the scan to the requested range.
+  // Array tables store one row per element, DISTINCT returns one error per timestamp.
+  HdbDataSet[] findErrorsFromDB(SignalInfo[] sigInfos,
+                                String start_date,
+                                String stop_date) throws HdbFailed {
+
+    HdbDataSet[] ret = new HdbDataSet[sigInfos.length];
+    for(int i=0;i<ret.length;i++)
+      ret[i] = new HdbDataSet();
+    if(sigInfos.length==0)
+      return ret;
+
+    // Signal ids per data table and result indexes per signal id
+    LinkedHashMap<String,ArrayList<String>> tables = new LinkedHashMap<>();
+    HashMap<Integer,ArrayList<Integer>> indexes = new HashMap<>();
+    for(int i=0;i<sigInfos.length;i++) {
+      SignalInfo info = sigInfos[i];
+      if(info.tableName==null || info.tableName.isEmpty())
+        throw new HdbFailed("Invalid request on a not supported type: type=" + info.dataType + ", format:" + info.format + ", access:" + info.access);
+      Integer id = Integer.parseInt(info.sigId);
+      ArrayList<Integer> idx = indexes.get(id);
+      if(idx==null) {
+        idx = new ArrayList<>();
+        indexes.put(id,idx);
+        tables.computeIfAbsent(sigInfos[i].tableName, t -> new ArrayList<>()).add(sigInfos[i].sigId);
       }
+      idx.add(i);
+    }
 
-      statement.close();
+    StringBuilder query = new StringBuilder();
+    for(String table : tables.keySet()) {
+      if(query.length()>0)
+        query.append(" UNION ALL ");
+      query.append("SELECT DISTINCT t.att_conf_id,t.data_time,e.error_desc,t.quality FROM ").append(table).append(" t")
+          .append(" JOIN att_error_desc e ON t.att_error_desc_id=e.att_error_desc_id")
+          .append(" WHERE t.att_conf_id IN (").append(String.join(",", tables.get(table))).append(")")
+          .append(" AND t.data_time>='").append(toDBDate(start_date)).append("'")
+          .append(" AND t.data_time<='").append(toDBDate(stop_date)).append("'")
+          .append(" AND t.att_error_desc_id IS NOT NULL");
+    }
+    query.append(" ORDER BY 1,2");
+
+    try {
+
+      pool.execute(c -> {
+        for(HdbDataSet set : ret)
+          set.clear();
+        try (Statement statement = c.createStatement(ResultSet.TYPE_FORWARD_ONLY,ResultSet.CONCUR_READ_ONLY)) {
+          ResultSet rs = statement.executeQuery(query.toString());
+          while(rs.next()) {
+            long time = timeValue(rs.getTimestamp(2));
+            String errorMsg = rs.getString(3);
+            int quality = rs.getInt(4);
+            for(int i : indexes.get(rs.getInt(1))) {
+              HdbData hd = HdbData.createData(sigInfos[i]);
+              hd.parseHeader(time, 0, 0, errorMsg, quality);
+              ret[i].add(hd);
+            }
+          }
+        }
+        return null;
+      });
 
     } catch (SQLException e) {
-      throw new HdbFailed("Failed to get parameter history: "+e.getMessage());
+      throw new HdbFailed("Failed to get errors: "+e.getMessage());
     }
 
     return ret;
-  }
 
-  public HdbDataSet findErrors(String attName,
-                                       String start_date,
-                                       String stop_date) throws HdbFailed {
-    throw new HdbFailed("Not implemented");
   }
 
   // ---------------------------------------------------------------------------------------
@@ -439,232 +593,479 @@ public class MySQLSchema extends HdbReader {
                                   String start_date,
                                   String stop_date) throws HdbFailed {
 
-    boolean isRW = info.isRW();
+    return readData(info, start_date, stop_date, arrayFetchSize);
 
-    String query;
-    int queryCount=0;
-    String tablename = info.tableName;
-    if (hasProgressListener()) {
+  }
 
-      // Get a count of the request
-      query = "SELECT count(*) FROM " + tablename +
-          " WHERE att_conf_id='" + sigId + "'" +
-          " AND data_time>='" + toDBDate(start_date) + "'" +
-          " AND data_time<='" + toDBDate(stop_date) + "'";
 
-      try {
+  // ---------------------------------------------------------------------------------------
+
+  private HdbDataSet getScalarData(SignalInfo info,
+                                   String sigId,
+                                   String start_date,
+                                   String stop_date) throws HdbFailed {
 
-        Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    return readData(info, start_date, stop_date, fetchSize);
 
-        ResultSet rs = statement.executeQuery(query);
-        rs.next();
-        queryCount = rs.getInt(1);
-        statement.close();
+  }
 
-      } catch (SQLException e) {
-        throw new HdbFailed("Failed to get data: " + e.getMessage());
-      }
+  private HdbDataSet readData(SignalInfo info,
+                              String start_date,
+                              String stop_date,
+                              int size) throws HdbFailed {
 
+    TimeProgress progress = new TimeProgress(start_date, stop_date);
+
+    try {
+
+      return pool.execute(c -> {
+
+        ArrayList<HdbData> ret = new ArrayList<HdbData>();
+        SqlDataCursor cursor = new MySQLCursor(null, c, info, start_date, stop_date, size).open();
+        try {
+          while (cursor.hasNextRow()) {
+            HdbData d = cursor.nextRow();
+            ret.add(d);
+            progress.update(d);
+          }
+        } finally {
+          cursor.close();
+        }
+        return new HdbDataSet(ret);
+
+      });
+
+    } catch (SQLException e) {
+      throw new HdbFailed("Failed to get data: "+e.getMessage());
     }
 
-    // Fetch data
+  }
 
-    String rwField = isRW?",value_w":"";
-        query = "SELECT data_time,recv_time,insert_time,att_error_desc.error_desc as error_desc,quality,idx,value_r"+rwField+
-        " FROM " + tablename +
-        " left outer join att_error_desc on "+ tablename+".att_error_desc_id = att_error_desc.att_error_desc_id" +
-        " WHERE att_conf_id='" + sigId + "'" +
-        " AND data_time>='" + toDBDate(start_date) + "'" +
-        " AND data_time<='" + toDBDate(stop_date) + "'" +
-        " ORDER BY data_time,idx ASC";
-
-    ArrayList<HdbData> ret = new ArrayList<HdbData>();
-    ArrayList<Object> value = new ArrayList<Object>();
-    ArrayList<Object> wvalue = null;
-    if(isRW) wvalue = new ArrayList<Object>();
+  HdbDoubleDataSet getDoubleDataFromDB(SignalInfo sigInfo,
+                                       String start_date,
+                                       String stop_date) throws HdbFailed {
+
+    boolean isRW = sigInfo.isRW();
 
     try {
 
-      long dTime = 0;
-      long newTime = 0;
-      long recvTime = 0;
-      long insertTime = 0;
-      String errorMsg = null;
-      int quality = 0;
-      int nbRow = 0;
-      boolean newItem = false;
-
-      Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY,ResultSet.CONCUR_READ_ONLY);
-      statement.setFetchSize(arrayFetchSize);
-      ResultSet rs = statement.executeQuery(query);
-      while(rs.next()) {
-
-        newTime = timeValue(rs.getTimestamp(1));
-
-        if( dTime!=newTime ) {
-
-          // Store current Item
-          if(newItem) {
-
-            HdbData hd = HdbData.createData(info);
-            hd.parse(
-                dTime,     //Tango timestamp
-                recvTime,  //Event recieve timestamp
-                insertTime,//Recording timestamp
-                errorMsg,  // Error string
-                quality,   // Quality value
-                value,     // Read value
-                wvalue     // Write value
-            );
-            ret.add(hd);
+      return pool.execute(c -> {
 
+        // Values are read directly from the result set
+        HdbDoubleDataSet ret = new HdbDoubleDataSet(sigInfo);
+        SqlDataCursor cursor = new MySQLCursor(null, c, sigInfo, start_date, stop_date, fetchSize).open();
+        try {
+          ResultSet rs = cursor.rs;
+          while (rs.next()) {
+            double v = rs.getDouble(6);
+            if (rs.wasNull()) v = Double.NaN;
+            double w = Double.NaN;
+            if (isRW) {
+              w = rs.getDouble(7);
+              if (rs.wasNull()) w = Double.NaN;
+            }
+            ret.add(timeValue(rs.getTimestamp(1)), v, w, rs.getInt(5), rs.getString(4));
           }
+        } finally {
+          cursor.close();
+        }
+        return ret;
 
-          // New Item
-          recvTime = timeValue(rs.getTimestamp(2));
-          insertTime = timeValue(rs.getTimestamp(3));
-          errorMsg = rs.getString(4);
-          quality = rs.getInt(5);
-          newItem = true;
+      });
 
-          value.clear();
-          if(isRW) wvalue.clear();
+    } catch (SQLException e) {
+      throw new HdbFailed("Failed to get data: "+e.getMessage());
+    }
 
-          dTime = newTime;
+  }
 
-        }
+  HdbDataSet getDecimatedDataFromDB(SignalInfo sigInfo,
+                                    String start_date,
+                                    String stop_date,
+                                    int nbBucket) throws HdbFailed {
 
-        value.add(rs.getString(7));
-        if(isRW)
-            wvalue.add(rs.getString(8));
+    double bucketWidth = (double)(parseTime(stop_date) - parseTime(start_date)) / nbBucket;
 
-        if(hasProgressListener() && (nbRow% PROGRESS_NBROW ==0))
-          fireProgressListener((double)nbRow/(double)queryCount);
+    try {
 
-        nbRow++;
+      return pool.execute(c -> {
 
-      }
+        ArrayList<HdbData> ret = new ArrayList<HdbData>();
+        SqlDataCursor cursor = new MySQLDecimatedCursor(c, sigInfo, start_date, stop_date, bucketWidth).open();
+        try {
+          while (cursor.hasNextRow())
+            ret.add(cursor.nextRow());
+        } finally {
+          cursor.close();
+        }
+        return new HdbDataSet(ret);
 
-      if( newItem ) {
-
-        // Store last item
-        HdbData hd = HdbData.createData(info);
-        hd.parse(
-            dTime,     // Tango timestamp
-            recvTime,  // Event receive timestamp
-            insertTime,// Recording timestamp
-            errorMsg,  // Error string
-            quality,   // Quality value
-            value,     // Read value
-            wvalue     // Write value
-        );
-        ret.add(hd);
+      });
 
-      }
+    } catch (SQLException e) {
+      throw new HdbFailed("Failed to get data: "+e.getMessage());
+    }
 
-      statement.close();
+  }
+
+  HdbDataCursor openCursor(SignalInfo sigInfo,
+                           String start_date,
+                           String stop_date) throws HdbFailed {
 
+    // Integer.MIN_VALUE makes the MySQL driver stream rows one by one
+    try {
+      return new MySQLCursor(pool, pool.borrow(), sigInfo, start_date, stop_date, Integer.MIN_VALUE).open();
     } catch (SQLException e) {
       throw new HdbFailed("Failed to get data: "+e.getMessage());
     }
 
-    return new HdbDataSet(ret);
+  }
 
+  // Spectrum elements can be packed server side (numeric and boolean types only)
+  private boolean usePivot(SignalInfo info) {
+    return arrayPivot && info.isArray() && info.isNumeric();
   }
 
+  // Cursor over scalar or array data, array elements are stored one per row (ordered by idx)
+  private class MySQLCursor extends SqlDataCursor {
+
+    private final SignalInfo info;
+    private final String start_date;
+    private final String stop_date;
+    private final int size;
+    private final boolean isRW;
+    private final boolean pivot;
+    private final ArrayList<Object> value = new ArrayList<Object>();
+    private final ArrayList<Object> wvalue;
+    // Array data: the result set is positioned on a row not read yet
+    private boolean pending = false;
+
+    MySQLCursor(ConnectionPool pool, Connection c, SignalInfo info, String start_date, String stop_date, int size) {
+      super(pool, c);
+      this.info = info;
+      this.start_date = start_date;
+      this.stop_date = stop_date;
+      this.size = size;
+      isRW = info.isRW();
+      pivot = usePivot(info);
+      wvalue = isRW ? new ArrayList<Object>() : null;
+    }
 
-  // ---------------------------------------------------------------------------------------
+    ResultSet executeQuery() throws SQLException {
+
+      String tablename = info.tableName;
+      String rwField = isRW?",value_w":"";
+      // Failed rows are not transferred when errors are ignored
+      String errorFilter = isIgnoringErrors() ? " AND " + tablename + ".att_error_desc_id IS NULL" : "";
+      String query;
+      if(pivot) {
+        // One row per timestamp, NULL elements are sent as NaN (floating point) or 0
+        String nullValue = SignalInfo.Type.isInteger(info.dataType) ? "0" : "'NaN'";
+        String rwConcat = isRW?",GROUP_CONCAT(IFNULL(value_w,"+nullValue+") ORDER BY idx SEPARATOR ',')":"";
+        query = "SELECT data_time,MAX(recv_time),MAX(insert_time),MAX(att_error_desc.error_desc),MAX(quality),count(*)," +
+            "GROUP_CONCAT(IFNULL(value_r,"+nullValue+") ORDER BY idx SEPARATOR ',')"+rwConcat+
+            " FROM " + tablename +
+            " left outer join att_error_desc on "+ tablename+".att_error_desc_id = att_error_desc.att_error_desc_id" +
+            " WHERE att_conf_id=?" +
+            " AND data_time>=?" +
+            " AND data_time<=?" + errorFilter +
+            " GROUP BY data_time" +
+            " ORDER BY data_time ASC";
+      } else if(info.isArray()) {
+        query = "SELECT data_time,recv_time,insert_time,att_error_desc.error_desc as error_desc,quality,idx,value_r"+rwField+
+            " FROM " + tablename +
+            " left outer join att_error_desc on "+ tablename+".att_error_desc_id = att_error_desc.att_error_desc_id" +
+            " WHERE att_conf_id=?" +
+            " AND data_time>=?" +
+            " AND data_time<=?" + errorFilter +
+            " ORDER BY data_time,idx ASC";
+      } else {
+        query = "SELECT data_time,recv_time,insert_time, att_error_desc.error_desc as error_desc,quality,value_r"+rwField+
+            " FROM " + tablename +
+            " left outer join att_error_desc on "+ tablename+".att_error_desc_id = att_error_desc.att_error_desc_id" +
+            " WHERE att_conf_id=?" +
+            " AND data_time>?" +
+            " AND data_time<?" + errorFilter +
+            " ORDER BY data_time ASC";
+      }
 
-  private HdbDataSet getScalarData(SignalInfo info,
-                                   String sigId,
-                                   String start_date,
-                                   String stop_date) throws HdbFailed {
+      PreparedStatement statement = pool.prepare(connection, query);
+      this.statement = statement;
+      cachedStatement = true;
+      statement.setInt(1, Integer.parseInt(info.sigId));
+      statement.setTimestamp(2, Timestamp.valueOf(toDBDate(start_date)));
+      statement.setTimestamp(3, Timestamp.valueOf(toDBDate(stop_date)));
+      statement.setFetchSize(size);
+      ResultSet ret = statement.executeQuery();
+      if(info.isArray() && !pivot)
+        pending = ret.next();
+      return ret;
 
-    String query;
-    int queryCount=0;
-    String tablename = info.tableName;
-    if (hasProgressListener()) {
+    }
 
-      // Get a count of the request
-      query = "SELECT count(*) FROM " + tablename +
-          " WHERE att_conf_id='" + sigId + "'" +
-          " AND data_time>='" + toDBDate(start_date) + "'" +
-          " AND data_time<='" + toDBDate(stop_date) + "'";
+    HdbData fetch() throws SQLException, HdbFailed {
+
+      if(pivot)
+        return fetchPackedArray();
+      if(info.isArray())
+        return fetchArray();
+
+      if(!rs.next())
+        return null;
+
+      HdbScalarData hd = (HdbScalarData)HdbData.createData(info);
+      hd.parseHeader(
+          timeValue(rs.getTimestamp(1)),     //Tango timestamp
+          timeValue(rs.getTimestamp(2)),     //Event recieve timestamp
+          timeValue(rs.getTimestamp(3)),     //Recording timestamp
+          rs.getString(4),                   // Error string
+          rs.getInt(5)                       // Quality value
+      );
+      if(hd.hasFailed())
+        return hd;
+
+      // Values are given to the typed setters (no boxing)
+      switch(info.dataType) {
+        case BOOLEAN:
+          hd.setBoolean(rs.getBoolean(6), isRW && rs.getBoolean(7));
+          break;
+        case DOUBLE:
+        case FLOAT:
+          hd.setDouble(getDouble(rs, 6), isRW ? getDouble(rs, 7) : Double.NaN);
+          break;
+        case STRING:
+          hd.setString(rs.getString(6), isRW ? rs.getString(7) : null);
+          break;
+        default:
+          hd.setLong(rs.getLong(6), isRW ? rs.getLong(7) : 0);
+          break;
+      }
+      return hd;
 
-      try {
+    }
+
+    // NULL is read as NaN
+    private double getDouble(ResultSet rs, int column) throws SQLException {
+      double d = rs.getDouble(column);
+      return rs.wasNull() ? Double.NaN : d;
+    }
 
-        Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-        ResultSet rs = statement.executeQuery(query);
-        rs.next();
-        queryCount = rs.getInt(1);
-        statement.close();
+    // Array element read with the getter matching the data type
+    private Object getElement(int column) throws SQLException {
+      switch(info.dataType) {
+        case BOOLEAN:
+          return rs.getBoolean(column);
+        case DOUBLE:
+          return getDouble(rs, column);
+        case FLOAT:
+          return (float)getDouble(rs, column);
+        case STRING:
+          return rs.getString(column);
+        default:
+          return rs.getLong(column);
+      }
+    }
 
-      } catch (SQLException e) {
-        throw new HdbFailed("Failed to get data: " + e.getMessage());
+    // Decodes a spectrum packed by GROUP_CONCAT
+    private HdbData fetchPackedArray() throws SQLException, HdbFailed {
+
+      if(!rs.next())
+        return null;
+
+      HdbArrayData hd = (HdbArrayData)HdbData.createData(info);
+      hd.parseHeader(
+          timeValue(rs.getTimestamp(1)),     //Tango timestamp
+          timeValue(rs.getTimestamp(2)),     //Event recieve timestamp
+          timeValue(rs.getTimestamp(3)),     //Recording timestamp
+          rs.getString(4),                   // Error string
+          rs.getInt(5)                       // Quality value
+      );
+      if(hd.hasFailed())
+        return hd;
+
+      int count = rs.getInt(6);
+      String r = rs.getString(7);
+      String w = isRW ? rs.getString(8) : null;
+
+      switch(info.dataType) {
+        case DOUBLE:
+        case FLOAT:
+          hd.setDoubleArray(unpackDouble(r, count), isRW ? unpackDouble(w, count) : null);
+          break;
+        case BOOLEAN:
+          hd.setBooleanArray(toBoolean(unpackLong(r, count)), isRW ? toBoolean(unpackLong(w, count)) : null);
+          break;
+        default:
+          hd.setLongArray(unpackLong(r, count), isRW ? unpackLong(w, count) : null);
+          break;
       }
+      return hd;
 
     }
 
-    boolean isRW = info.isRW();
-    String rwField = isRW?",value_w":"";
-    query = "SELECT data_time,recv_time,insert_time, att_error_desc.error_desc as error_desc,quality,value_r"+rwField+
-        " FROM " + tablename +
-        " left outer join att_error_desc on "+ tablename+".att_error_desc_id = att_error_desc.att_error_desc_id" +
-        " WHERE att_conf_id='" + sigId + "'" +
-        " AND data_time>'" + toDBDate(start_date) + "'" +
-        " AND data_time<'" + toDBDate(stop_date) + "'" +
-        " ORDER BY data_time ASC";
+    // Returns the start index of the n elements of a packed spectrum, ret[n] is the string length + 1
+    private int[] split(String packed, int n) throws HdbFailed {
 
-    ArrayList<HdbData> ret = new ArrayList<HdbData>();
-    ArrayList<Object> value = new ArrayList<Object>();
-    ArrayList<Object> wvalue = null;
-    if(isRW) wvalue = new ArrayList<Object>();
-    int nbRow=0;
+      int[] ret = new int[n + 1];
+      if(n == 0)
+        return ret;
 
-    try {
+      int k = 1;
+      if(packed != null && packed.length() < GROUP_CONCAT_MAX_LEN) {
+        for(int i = 0; i < packed.length() && k <= n; i++)
+          if(packed.charAt(i) == ',')
+            ret[k++] = i + 1;
+      }
+      if(k != n)
+        throw new HdbFailed("Packed spectrum of " + info.name + " is truncated (" + n + " elements expected)");
+      ret[n] = packed.length() + 1;
+      return ret;
 
-      Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY,ResultSet.CONCUR_READ_ONLY);
-      statement.setFetchSize(fetchSize);
-      ResultSet rs = statement.executeQuery(query);
-      while(rs.next()) {
-
-        HdbData hd = HdbData.createData(info);
-        value.clear();
-        value.add(rs.getString(6));
-        if(isRW) {
-          wvalue.clear();
-          wvalue.add(rs.getString(7));
-        }
+    }
 
-        hd.parse(
-            timeValue(rs.getTimestamp(1)),     //Tango timestamp
-            timeValue(rs.getTimestamp(2)),     //Event recieve timestamp
-            timeValue(rs.getTimestamp(3)),     //Recording timestamp
-            rs.getString(4),                   // Error string
-            rs.getInt(5),                      // Quality value
-            value,                             // Read value
-            wvalue                             // Write value
-        );
+    private double[] unpackDouble(String packed, int n) throws HdbFailed {
 
-        ret.add(hd);
+      int[] idx = split(packed, n);
+      double[] ret = new double[n];
+      try {
+        for(int i = 0; i < n; i++)
+          ret[i] = Double.parseDouble(packed.substring(idx[i], idx[i + 1] - 1));
+      } catch (NumberFormatException e) {
+        throw new HdbFailed("unpackDouble: Invalid number syntax");
+      }
+      return ret;
 
-        if(hasProgressListener() && (nbRow% PROGRESS_NBROW==0))
-          fireProgressListener((double)nbRow/(double)queryCount);
+    }
 
-        nbRow++;
+    private long[] unpackLong(String packed, int n) throws HdbFailed {
 
+      int[] idx = split(packed, n);
+      long[] ret = new long[n];
+      try {
+        for(int i = 0; i < n; i++)
+          ret[i] = Long.parseLong(packed.substring(idx[i], idx[i + 1] - 1));
+      } catch (NumberFormatException e) {
+        throw new HdbFailed("unpackLong: Invalid number syntax");
       }
+      return ret;
 
-      statement.close();
+    }
 
-    } catch (SQLException e) {
-      throw new HdbFailed("Failed to get data: "+e.getMessage());
+    private boolean[] toBoolean(long[] v) {
+      boolean[] ret = new boolean[v.length];
+      for(int i = 0; i < v.length; i++)
+        ret[i] = v[i] != 0;
+      return ret;
     }
 
-    return new HdbDataSet(ret);
+    // Reads all rows having the same data_time
+    private HdbData fetchArray() throws SQLException, HdbFailed {
+
+      if(!pending)
+        return null;
+
+      long dTime = timeValue(rs.getTimestamp(1));
+      long recvTime = timeValue(rs.getTimestamp(2));
+      long insertTime = timeValue(rs.getTimestamp(3));
+      String errorMsg = rs.getString(4);
+      int quality = rs.getInt(5);
+
+      value.clear();
+      if(isRW) wvalue.clear();
+
+      do {
+        value.add(getElement(7));
+        if(isRW)
+          wvalue.add(getElement(8));
+        pending = rs.next();
+      } while(pending && timeValue(rs.getTimestamp(1))==dTime);
+
+      HdbData hd = HdbData.createData(info);
+      hd.parse(
+          dTime,     // Tango timestamp
+          recvTime,  // Event receive timestamp
+          insertTime,// Recording timestamp
+          errorMsg,  // Error string
+          quality,   // Quality value
+          value,     // Read value
+          wvalue     // Write value
+      );
+      return hd;
+
+    }
 
   }
 
+  // Cursor over M4 decimated data, one row per time bucket (buckets are aligned on the start
+  // date). MySQL has no first()/last() aggregate, the first element of an ordered GROUP_CONCAT
+  // gives the value at the first or last time and the time of the minimum or maximum.
+  private class MySQLDecimatedCursor extends SqlDataCursor {
+
+    private final SignalInfo info;
+    private final String start_date;
+    private final String stop_date;
+    private final double bucketWidth;
+    private final ArrayDeque<HdbData> pending = new ArrayDeque<HdbData>();
+
+    MySQLDecimatedCursor(Connection c, SignalInfo info, String start_date, String stop_date, double bucketWidth) {
+      super(null, c);
+      this.info = info;
+      this.start_date = start_date;
+      this.stop_date = stop_date;
+      this.bucketWidth = bucketWidth;
+    }
+
+    ResultSet executeQuery() throws SQLException {
+
+      String query = "SELECT MIN(data_time),SUBSTRING_INDEX(GROUP_CONCAT(value_r ORDER BY data_time ASC SEPARATOR ','),',',1)," +
+          "SUBSTRING_INDEX(GROUP_CONCAT(data_time ORDER BY value_r ASC SEPARATOR ','),',',1),MIN(value_r)," +
+          "SUBSTRING_INDEX(GROUP_CONCAT(data_time ORDER BY value_r DESC SEPARATOR ','),',',1),MAX(value_r)," +
+          "MAX(data_time),SUBSTRING_INDEX(GROUP_CONCAT(value_r ORDER BY data_time DESC SEPARATOR ','),',',1)" +
+          " FROM " + info.tableName +
+          " WHERE att_conf_id=?" +
+          " AND data_time>=?" +
+          " AND data_time<=?" +
+          " AND att_error_desc_id IS NULL" +
+          " AND value_r IS NOT NULL" +
+          " GROUP BY FLOOR(TIMESTAMPDIFF(MICROSECOND,?,data_time)/?)" +
+          " ORDER BY 1";
+
+      PreparedStatement statement = pool.prepare(connection, query);
+      this.statement = statement;
+      cachedStatement = true;
+
+      Timestamp start = Timestamp.valueOf(toDBDate(start_date));
+      statement.setInt(1, Integer.parseInt(info.sigId));
+      statement.setTimestamp(2, start);
+      statement.setTimestamp(3, Timestamp.valueOf(toDBDate(stop_date)));
+      statement.setTimestamp(4, start);
+      statement.setDouble(5, bucketWidth);
+      statement.setFetchSize(fetchSize);
+      return statement.executeQuery();
+
+    }
+
+    HdbData fetch() throws SQLException, HdbFailed {
+
+      while(pending.isEmpty()) {
+        if(!rs.next())
+          return null;
+        M4Decimator.addBucket(pending, sample(1), sample(3), sample(5), sample(7));
+      }
+      return pending.poll();
+
+    }
+
+    // Sample from a (time,value) column pair, GROUP_CONCAT columns are converted by the driver
+    private HdbData sample(int col) throws SQLException, HdbFailed {
+      long time = timeValue(rs.getTimestamp(col));
+      if(info.isFloating())
+        return M4Decimator.createSample(info, time, rs.getDouble(col + 1));
+      else
+        return M4Decimator.createSample(info, time, rs.getLong(col + 1));
+    }
+
+  }
 
   private long timeValue(Timestamp ts) {
 
@@ -687,4 +1088,16 @@ public class MySQLSchema extends HdbReader {
 
   }
 
+  @Override
+  public boolean isFeatureSupported(Feature feat)
+  {
+    switch(feat)
+    {
+      case CONCURRENT_EXTRACTION:
+        return true;
+      default:
+        return false;
+    }
+  }
+
 }
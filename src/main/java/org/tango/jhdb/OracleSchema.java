@@ -208,6 +208,9 @@ public class OracleSchema extends HdbReader {
                            String startDate,
                            String stopDate) throws HdbFailed {
 
+    // TACO HDB queries cannot be aborted, the request is only checked before the query
+    HdbRequest.checkCurrent();
+
     SigExtractQuery sigExt;
 
     // Construct query
@@ -344,7 +347,7 @@ public class OracleSchema extends HdbReader {
 
   }
 
-  public HdbSigInfo getSigInfo(String attName) throws HdbFailed {
+  HdbSigInfo getSigInfoFromDB(String attName) throws HdbFailed {
 
     SignalInfo ret = prepareSigInfo(attName);
     attName = ret.name.substring(6).toLowerCase();
@@ -495,10 +498,6 @@ public class OracleSchema extends HdbReader {
     throw new HdbFailed("getParams() not supported on Oracle HDB");
   }
 
-  public HdbDataSet findErrors(String attName, String startDate, String stopDate) throws HdbFailed {
-    return null;
-  }
-
   private String buildMessage(HdbException ex) {
     String msg = "Class:" + ex.getClassName() + "\n" + "Method:" + ex.getMethod() + "\n" + ex.getMessage() + "\n" + ex.getSystemMessage();
     return msg;
@@ -42,8 +42,12 @@ public class Period {
 
   public String toString() {
 
-    String startDate = Hdb.hdbDateFormat.format(start);
-    String stopDate = Hdb.hdbDateFormat.format(end);
+    String startDate;
+    String stopDate;
+    synchronized (Hdb.hdbDateFormat) {
+      startDate = Hdb.hdbDateFormat.format(start);
+      stopDate = Hdb.hdbDateFormat.format(end);
+    }
     return "Full:" + Boolean.toString(isFull) + " Start:" + startDate +
            " Stop:"+stopDate+" Partition:"+partitionDate;
 
@@ -84,22 +88,26 @@ public class Period {
    * @param startDate Start Date (ex: 10/07/2014 10:00:00)
    * @param stopDate Stop Date (ex: 10/07/2014 10:00:00)
    */
-  static ArrayList<Period> getPeriods(String startDate,String stopDate) throws HdbFailed {
+  static synchronized ArrayList<Period> getPeriods(String startDate,String stopDate) throws HdbFailed {
 
     ArrayList<Period> periods = new ArrayList<Period>();
     Date d0;
     Date d1;
 
-    try {
-      d0 = Hdb.hdbDateFormat.parse(startDate);
-    } catch( ParseException e ) {
-      throw new HdbFailed("Wrong start date format : " + e.getMessage());
-    }
+    synchronized (Hdb.hdbDateFormat) {
+
+      try {
+        d0 = Hdb.hdbDateFormat.parse(startDate);
+      } catch (ParseException e) {
+        throw new HdbFailed("Wrong start date format : " + e.getMessage());
+      }
+
+      try {
+        d1 = Hdb.hdbDateFormat.parse(stopDate);
+      } catch (ParseException e) {
+        throw new HdbFailed("Wrong stop date format : " + e.getMessage());
+      }
 
-    try {
-      d1 = Hdb.hdbDateFormat.parse(stopDate);
-    } catch( ParseException e ) {
-      throw new HdbFailed("Wrong stop date format : " + e.getMessage());
     }
 
 
@@ -0,0 +1,259 @@
+//+======================================================================
+// $Source: $
+//
+// Project:   Tango
+//
+// Description:  java source code for HDB extraction library.
+//
+// $Author: pons $
+//
+// Copyright (C) :      2015
+//						European Synchrotron Radiation Facility
+//                      BP 220, Grenoble 38043
+//                      FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision $
+//
+//-======================================================================
+package org.tango.jhdb;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * Decoder of PostgreSQL array values into primitive arrays.
+ * Arrays are received in binary form (ndim, flags, element oid, dimensions, then
+ * length prefixed elements) or in text form ({1,2,NULL}) depending on the transfer
+ * mode chosen by the driver. Multi dimensional arrays are flattened.
+ */
+class PgArrayDecoder {
+
+  // Element types
+  private static final int BOOL_OID = 16;
+  private static final int INT8_OID = 20;
+  private static final int INT2_OID = 21;
+  private static final int INT4_OID = 23;
+  private static final int TEXT_OID = 25;
+  private static final int FLOAT4_OID = 700;
+  private static final int FLOAT8_OID = 701;
+  private static final int VARCHAR_OID = 1043;
+
+  private static final double[] EMPTY_DOUBLE = new double[0];
+  private static final long[] EMPTY_LONG = new long[0];
+  private static final boolean[] EMPTY_BOOLEAN = new boolean[0];
+
+  /**
+   * Decodes a floating point array, NULL elements are NaN. Returns an empty array if b is null.
+   */
+  static double[] toDoubleArray(byte[] b) throws IOException {
+
+    if(b==null)
+      return EMPTY_DOUBLE;
+    if(isText(b)) {
+      String[] items = splitText(b);
+      double[] ret = new double[items.length];
+      try {
+        for (int i = 0; i < items.length; i++)
+          ret[i] = (items[i] == null) ? Double.NaN : Double.parseDouble(items[i]);
+      } catch (NumberFormatException e) {
+        throw new IOException("Invalid number syntax in array");
+      }
+      return ret;
+    }
+    Object o = readBinary(new DataInputStream(new ByteArrayInputStream(b)));
+    if(!(o instanceof double[]))
+      throw new IOException("Floating point array expected");
+    return (double[])o;
+
+  }
+
+  /**
+   * Decodes an integer array, NULL elements are 0. Returns an empty array if b is null.
+   */
+  static long[] toLongArray(byte[] b) throws IOException {
+
+    if(b==null)
+      return EMPTY_LONG;
+    if(isText(b)) {
+      String[] items = splitText(b);
+      long[] ret = new long[items.length];
+      try {
+        for (int i = 0; i < items.length; i++)
+          ret[i] = (items[i] == null) ? 0 : Long.parseLong(items[i]);
+      } catch (NumberFormatException e) {
+        throw new IOException("Invalid number syntax in array");
+      }
+      return ret;
+    }
+    Object o = readBinary(new DataInputStream(new ByteArrayInputStream(b)));
+    if(!(o instanceof long[]))
+      throw new IOException("Integer array expected");
+    return (long[])o;
+
+  }
+
+  /**
+   * Decodes a boolean array, NULL elements are false. Returns an empty array if b is null.
+   */
+  static boolean[] toBooleanArray(byte[] b) throws IOException {
+
+    if(b==null)
+      return EMPTY_BOOLEAN;
+    if(isText(b)) {
+      String[] items = splitText(b);
+      boolean[] ret = new boolean[items.length];
+      for (int i = 0; i < items.length; i++)
+        ret[i] = "t".equals(items[i]) || "true".equals(items[i]);
+      return ret;
+    }
+    Object o = readBinary(new DataInputStream(new ByteArrayInputStream(b)));
+    if(!(o instanceof boolean[]))
+      throw new IOException("Boolean array expected");
+    return (boolean[])o;
+
+  }
+
+  /**
+   * Reads a binary array as double[], long[], boolean[] or String[] according to
+   * the element type. NULL elements are read as NaN, 0, false or null.
+   */
+  static Object readBinary(DataInput in) throws IOException {
+
+    int ndim = in.readInt();
+    in.readInt(); // Has null flag
+    int oid = in.readInt();
+    int size = (ndim==0) ? 0 : 1;
+    for(int i=0;i<ndim;i++) {
+      size *= in.readInt();
+      in.readInt(); // Lower bound
+    }
+
+    switch(oid) {
+      case FLOAT4_OID:
+      case FLOAT8_OID: {
+        double[] ret = new double[size];
+        for (int i = 0; i < size; i++)
+          ret[i] = readDouble(in, in.readInt());
+        return ret;
+      }
+      case BOOL_OID: {
+        boolean[] ret = new boolean[size];
+        for (int i = 0; i < size; i++)
+          ret[i] = readLong(in, in.readInt()) != 0;
+        return ret;
+      }
+      case INT2_OID:
+      case INT4_OID:
+      case INT8_OID: {
+        long[] ret = new long[size];
+        for (int i = 0; i < size; i++)
+          ret[i] = readLong(in, in.readInt());
+        return ret;
+      }
+      case TEXT_OID:
+      case VARCHAR_OID: {
+        String[] ret = new String[size];
+        for (int i = 0; i < size; i++)
+          ret[i] = readText(in, in.readInt());
+        return ret;
+      }
+      default:
+        throw new IOException("Unsupported array element type (oid=" + oid + ")");
+    }
+
+  }
+
+  /**
+   * Reads a binary text value of the given length, null if length is -1
+   */
+  static String readText(DataInput in, int length) throws IOException {
+    if(length<0)
+      return null;
+    byte[] b = new byte[length];
+    in.readFully(b);
+    return new String(b, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Reads a binary integer (or boolean) value of the given length, 0 if length is -1
+   */
+  static long readLong(DataInput in, int length) throws IOException {
+    switch(length) {
+      case -1:
+        return 0;
+      case 1:
+        return in.readByte();
+      case 2:
+        return in.readShort();
+      case 4:
+        return in.readInt();
+      case 8:
+        return in.readLong();
+      default:
+        throw new IOException("Unexpected integer length " + length);
+    }
+  }
+
+  /**
+   * Reads a binary floating point value of the given length, NaN if length is -1
+   */
+  static double readDouble(DataInput in, int length) throws IOException {
+    switch(length) {
+      case -1:
+        return Double.NaN;
+      case 4:
+        return in.readFloat();
+      case 8:
+        return in.readDouble();
+      default:
+        throw new IOException("Unexpected floating point length " + length);
+    }
+  }
+
+  // Binary arrays start with the number of dimensions, text arrays with a brace
+  private static boolean isText(byte[] b) {
+    return b.length>0 && b[0]=='{';
+  }
+
+  // Splits a text array of numbers or booleans, NULL items are returned as null
+  private static String[] splitText(byte[] b) {
+
+    ArrayList<String> ret = new ArrayList<>();
+    int start = -1;
+    for(int i=0;i<=b.length;i++) {
+      byte c = (i<b.length) ? b[i] : (byte)',';
+      if(c=='{' || c=='}' || c==',') {
+        if(start>=0) {
+          String item = new String(b, start, i - start, StandardCharsets.US_ASCII).trim();
+          ret.add(item.equals("NULL") ? null : item);
+          start = -1;
+        }
+      } else if(start<0) {
+        start = i;
+      }
+    }
+    return ret.toArray(new String[0]);
+
+  }
+
+}
@@ -0,0 +1,155 @@
+//+======================================================================
+// $Source: $
+//
+// Project:   Tango
+//
+// Description:  java source code for HDB extraction library.
+//
+// $Author: pons $
+//
+// Copyright (C) :      2015
+//						European Synchrotron Radiation Facility
+//                      BP 220, Grenoble 38043
+//                      FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision $
+//
+//-======================================================================
+package org.tango.jhdb;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decoder of the PostgreSQL binary COPY format (COPY ... TO STDOUT (FORMAT binary)).
+ * Fields are read in order, each field starting with its length (-1 for NULL).
+ */
+class PgCopyReader {
+
+  private static final byte[] SIGNATURE = {'P','G','C','O','P','Y','\n',(byte)0xFF,'\r','\n',0};
+
+  // Microseconds between 1970-01-01 and the PostgreSQL epoch (2000-01-01)
+  private static final long PG_EPOCH_US = 946684800000000L;
+
+  private final DataInputStream in;
+
+  PgCopyReader(InputStream stream) {
+    in = new DataInputStream(new BufferedInputStream(stream, 65536));
+  }
+
+  /**
+   * Reads the file header
+   */
+  void readHeader() throws IOException {
+
+    byte[] sig = new byte[SIGNATURE.length];
+    in.readFully(sig);
+    for(int i=0;i<sig.length;i++)
+      if(sig[i]!=SIGNATURE[i])
+        throw new IOException("Invalid binary COPY signature");
+    in.readInt(); // Flags
+    int extLength = in.readInt();
+    skip(extLength);
+
+  }
+
+  /**
+   * Starts the next tuple, returns the number of fields or -1 at the end of the data
+   */
+  int nextTuple() throws IOException {
+
+    try {
+      return in.readShort();
+    } catch (EOFException e) {
+      return -1;
+    }
+
+  }
+
+  /**
+   * Reads the length of the next field (-1 for NULL)
+   */
+  int fieldLength() throws IOException {
+    return in.readInt();
+  }
+
+  void skip(int length) throws IOException {
+    if(length>0)
+      in.readFully(new byte[length]);
+  }
+
+  /**
+   * Reads a timestamp with time zone as microseconds since epoch, 0 if NULL
+   */
+  long readTime() throws IOException {
+    int length = fieldLength();
+    if(length<0)
+      return 0;
+    return in.readLong() + PG_EPOCH_US;
+  }
+
+  /**
+   * Reads a text field, null if NULL
+   */
+  String readText() throws IOException {
+    return readText(fieldLength());
+  }
+
+  /**
+   * Reads an integer field (smallint, integer, bigint or boolean), 0 if NULL
+   */
+  long readLong() throws IOException {
+    return readLong(fieldLength());
+  }
+
+  /**
+   * Reads a floating point field (real or double precision), NaN if NULL
+   */
+  double readDouble() throws IOException {
+    return readDouble(fieldLength());
+  }
+
+  /**
+   * Reads an array field (see PgArrayDecoder.readBinary), null if NULL
+   */
+  Object readArray() throws IOException {
+
+    int length = fieldLength();
+    if(length<0)
+      return null;
+
+    return PgArrayDecoder.readBinary(in);
+
+  }
+
+  private String readText(int length) throws IOException {
+    return PgArrayDecoder.readText(in, length);
+  }
+
+  private long readLong(int length) throws IOException {
+    return PgArrayDecoder.readLong(in, length);
+  }
+
+  private double readDouble(int length) throws IOException {
+    return PgArrayDecoder.readDouble(in, length);
+  }
+
+}
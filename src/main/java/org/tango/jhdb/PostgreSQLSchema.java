@@ -32,14 +32,23 @@
 //-======================================================================
 package org.tango.jhdb;
 
+import org.postgresql.PGConnection;
+import org.postgresql.PGStatement;
+import org.postgresql.copy.PGCopyInputStream;
+import org.postgresql.core.BaseConnection;
+import org.tango.jhdb.data.HdbArrayData;
 import org.tango.jhdb.data.HdbData;
 import org.tango.jhdb.data.HdbDataSet;
+import org.tango.jhdb.data.HdbDoubleDataSet;
+import org.tango.jhdb.data.HdbScalarData;
 
+import java.io.IOException;
 import java.sql.*;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Properties;
-import java.util.List;
 
 /**
  * PostgreSQL database access
@@ -78,16 +87,12 @@ public class PostgreSQLSchema extends HdbReader {
     INT_TO_TYPE.put(30, SignalInfo.Type.ENUM);
   }
 
-
-  private static HashMap<SignalInfo, PreparedStatement> prepQueries = new HashMap<>();
-
-  // Notify every PROGRESS_NBROW rows
-  private final static int PROGRESS_NBROW =10000;
-  private Connection connection;
+  private ConnectionPool pool;
   private AttributeBrowser browser=null;
   private String dbURL;
   private String user;
   private String passwd;
+  private volatile boolean binaryCopy;
 
   /**
    * Connects to a postgresql HDB.
@@ -129,24 +134,12 @@ public class PostgreSQLSchema extends HdbReader {
     // URL example: jdbc:postgresql://host:port/database
     dbURL = DEFAULT_DB_URL_PREFIX + host + ":" + Integer.toString(port) + "/" + db;
 
+    binaryCopy = Boolean.parseBoolean(getPropertyOrDefault("HDB_POSTGRESQL_BINARY_COPY", null, "false"));
+
     connect();
 
   }
 
-  private String getPropertyOrDefault(String property, String value, String default_value)
-  {
-    String ret = value;
-    if(ret==null || ret.isEmpty()) {
-      ret = System.getenv(property);
-      if (ret==null || ret.isEmpty()) {
-        ret = System.getProperty(property);
-        if (ret==null || ret.isEmpty())
-          ret = default_value;
-      }
-    }
-    return ret;
-  }
-  
   private void connect() throws HdbFailed {
 
     try {
@@ -156,7 +149,7 @@ public class PostgreSQLSchema extends HdbReader {
       connectProperties.setProperty("password", passwd);
       connectProperties.setProperty("loginTimeout", Integer.toString(10));
       connectProperties.setProperty("tcpKeepAlive ", "true"); //Enable TCP keep-alive probe
-      connection = DriverManager.getConnection(dbURL, connectProperties);
+      pool = ConnectionPool.create(dbURL, connectProperties);
 
     } catch (SQLException e) {
       throw new HdbFailed("Failed to connect to PostgreSQL: "+e.getMessage());
@@ -166,17 +159,25 @@ public class PostgreSQLSchema extends HdbReader {
 
   public void disconnect () {
 
-    try {
-      for(PreparedStatement statement : prepQueries.values())
-      {
-        statement.close();
-      }
-      prepQueries.clear();
-      connection.close();
-    } catch (SQLException e) {
-      System.out.println("Warning closing connection : " + e.getMessage());
-    }
+    pool.close();
+
+  }
 
+  /**
+   * Enables the binary COPY extraction mode (default is false, or HDB_POSTGRESQL_BINARY_COPY).
+   * When enabled, raw data are transferred using COPY ... TO STDOUT (FORMAT binary) and decoded
+   * directly from the binary stream. This is faster for large extractions. Aggregates are not affected.
+   * @param enable True to enable binary COPY
+   */
+  public void setBinaryCopy(boolean enable) {
+    binaryCopy = enable;
+  }
+
+  /**
+   * Returns true if the binary COPY extraction mode is enabled
+   */
+  public boolean isBinaryCopy() {
+    return binaryCopy;
   }
 
   public String getInfo() throws HdbFailed {
@@ -187,20 +188,6 @@ public class PostgreSQLSchema extends HdbReader {
 
   }
 
-  private void connectionCheck() throws HdbFailed {
-
-    // Execute a dummy request to check the connection with the database,
-    // In case failure, make a new connection
-    try {
-      connection.createStatement(ResultSet.TYPE_FORWARD_ONLY,ResultSet.CONCUR_READ_ONLY).execute("select 1;");
-    } catch (SQLException e) {
-      System.out.println("Reconnecting to "  + this.dbURL);
-      disconnect();
-      connect();
-    }
-
-  }
-
   public String[] getAttributeList() throws HdbFailed {
 
     return getList("SELECT att_name FROM att_conf ORDER BY att_name");
@@ -241,31 +228,32 @@ public class PostgreSQLSchema extends HdbReader {
   }
 
 
-  public HdbSigInfo getSigInfo(String attName) throws HdbFailed {
-
-    connectionCheck();
+  HdbSigInfo getSigInfoFromDB(String attName) throws HdbFailed {
 
     SignalInfo ret = prepareSigInfo(attName);
     attName = ret.name;
-    String query = "SELECT att_conf_id, table_name, write_num, type_num, format_num " +
+    final String query = "SELECT att_conf_id, table_name, write_num, type_num, format_num " +
             "FROM att_conf join att_conf_format on (att_conf.att_conf_format_id=att_conf_format.att_conf_format_id) " +
             "join att_conf_write on (att_conf.att_conf_write_id=att_conf_write.att_conf_write_id) " +
             "join att_conf_type on (att_conf.att_conf_type_id=att_conf_type.att_conf_type_id) " +
             "WHERE att_name='" + attName + "'";
 
     try {
-      Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY,ResultSet.CONCUR_READ_ONLY);
-      ResultSet resultSet = statement.executeQuery(query);
-      if(resultSet.next()) {
-        ret.sigId = resultSet.getString(1);
-        ret.tableName = resultSet.getString(2);
-        ret.access = INT_TO_ACCESS.getOrDefault(resultSet.getInt(3), SignalInfo.Access.UNKNOWN);
-        ret.dataType = INT_TO_TYPE.getOrDefault(resultSet.getInt(4), SignalInfo.Type.UNKNOWN);
-        ret.format = INT_TO_FORMAT.getOrDefault(resultSet.getInt(5), SignalInfo.Format.UNKNOWN);
-      } else {
-        throw new HdbFailed("Signal not found");
-      }
-      statement.close();
+      pool.execute(c -> {
+        try (Statement statement = c.createStatement(ResultSet.TYPE_FORWARD_ONLY,ResultSet.CONCUR_READ_ONLY)) {
+          ResultSet resultSet = statement.executeQuery(query);
+          if(resultSet.next()) {
+            ret.sigId = resultSet.getString(1);
+            ret.tableName = resultSet.getString(2);
+            ret.access = INT_TO_ACCESS.getOrDefault(resultSet.getInt(3), SignalInfo.Access.UNKNOWN);
+            ret.dataType = INT_TO_TYPE.getOrDefault(resultSet.getInt(4), SignalInfo.Type.UNKNOWN);
+            ret.format = INT_TO_FORMAT.getOrDefault(resultSet.getInt(5), SignalInfo.Format.UNKNOWN);
+          } else {
+            throw new HdbFailed("Signal not found");
+          }
+        }
+        return null;
+      });
     } catch (SQLException e) {
       throw new HdbFailed("Failed to retrieve signal id: "+e.getMessage());
     }
@@ -274,6 +262,52 @@ public class PostgreSQLSchema extends HdbReader {
 
   }
 
+  // All names are resolved with a single query, att_name is bound as a text array
+  void resolveSigInfos(SignalInfo[] infos) throws HdbFailed {
+
+    HashMap<String,ArrayList<SignalInfo>> byName = new HashMap<>();
+    for(SignalInfo info : infos)
+      byName.computeIfAbsent(info.name, n -> new ArrayList<>()).add(info);
+    final String[] names = byName.keySet().toArray(new String[0]);
+
+    final String query = "SELECT att_name, att_conf_id, table_name, write_num, type_num, format_num " +
+            "FROM att_conf join att_conf_format on (att_conf.att_conf_format_id=att_conf_format.att_conf_format_id) " +
+            "join att_conf_write on (att_conf.att_conf_write_id=att_conf_write.att_conf_write_id) " +
+            "join att_conf_type on (att_conf.att_conf_type_id=att_conf_type.att_conf_type_id) " +
+            "WHERE att_name = ANY(?)";
+
+    try {
+      pool.execute(c -> {
+        // The statement is cached by the pool, only its result set is closed
+        PreparedStatement statement = pool.prepare(c, query);
+        Array array = c.createArrayOf("text", names);
+        try {
+          statement.setArray(1, array);
+          try (ResultSet resultSet = statement.executeQuery()) {
+            while(resultSet.next()) {
+              ArrayList<SignalInfo> list = byName.get(resultSet.getString(1));
+              if(list==null)
+                continue;
+              for(SignalInfo info : list) {
+                info.sigId = resultSet.getString(2);
+                info.tableName = resultSet.getString(3);
+                info.access = INT_TO_ACCESS.getOrDefault(resultSet.getInt(4), SignalInfo.Access.UNKNOWN);
+                info.dataType = INT_TO_TYPE.getOrDefault(resultSet.getInt(5), SignalInfo.Type.UNKNOWN);
+                info.format = INT_TO_FORMAT.getOrDefault(resultSet.getInt(6), SignalInfo.Format.UNKNOWN);
+              }
+            }
+          }
+        } finally {
+          array.free();
+        }
+        return null;
+      });
+    } catch (SQLException e) {
+      throw new HdbFailed("Failed to retrieve signal ids: "+e.getMessage());
+    }
+
+  }
+
   HdbDataSet getDataFromDB(SignalInfo sigInfo,
                            String start_date,
                            String stop_date) throws HdbFailed {
@@ -283,225 +317,709 @@ public class PostgreSQLSchema extends HdbReader {
 
     checkDates(start_date, stop_date);
 
-    boolean isRW = sigInfo.isRW();
-    boolean isWO = sigInfo.access == SignalInfo.Access.WO;
-    boolean isAggregate = sigInfo.isAggregate();
+    TimeProgress progress = new TimeProgress(start_date, stop_date);
 
-    String query;
-    int queryCount = 0;
+    try {
 
-    connectionCheck();
+      return pool.execute(c -> {
 
-    String tablename;
-    if(isAggregate)
-    {
-      tablename = "cagg_" + sigInfo.tableName.substring(4) + "_" + sigInfo.interval.toString();
+        // Fetch data
+        ArrayList<HdbData> ret = new ArrayList<>();
+        int size = sigInfo.isArray() ? arrayFetchSize : fetchSize;
+        SqlDataCursor cursor = createCursor(null, c, sigInfo, start_date, stop_date, size).open();
+        try {
+          while (cursor.hasNextRow()) {
+            HdbData d = cursor.nextRow();
+            ret.add(d);
+            progress.update(d);
+          }
+        } finally {
+          cursor.close();
+        }
+
+        return new HdbDataSet(ret);
+
+      });
+
+    } catch (SQLException e) {
+      throw new HdbFailed("Failed to get data: " + e.getMessage());
     }
+
+  }
+
+  HdbDataCursor openCursor(SignalInfo sigInfo,
+                           String start_date,
+                           String stop_date) throws HdbFailed {
+
+    int size = sigInfo.isArray() ? arrayFetchSize : fetchSize;
+    try {
+      return createCursor(pool, pool.borrow(), sigInfo, start_date, stop_date, size).open();
+    } catch (SQLException e) {
+      throw new HdbFailed("Failed to get data: " + e.getMessage());
+    }
+
+  }
+
+  private SqlDataCursor createCursor(ConnectionPool pool, Connection c, SignalInfo sigInfo,
+                                     String start_date, String stop_date, int size) {
+
+    if(useBinaryCopy(sigInfo))
+      return new PgCopyCursor(pool, c, sigInfo, start_date, stop_date);
     else
-    {
-      tablename = sigInfo.tableName;
+      return new PgCursor(pool, c, sigInfo, start_date, stop_date, size);
+
+  }
+
+  // Binary COPY is used for raw data of types handled by the copy cursor
+  private boolean useBinaryCopy(SignalInfo sigInfo) {
+
+    if(!binaryCopy || sigInfo.isAggregate())
+      return false;
+    switch(sigInfo.dataType) {
+      case BOOLEAN:
+      case SHORT:
+      case UCHAR:
+      case LONG:
+      case USHORT:
+      case STATE:
+      case LONG64:
+      case ULONG:
+      case DOUBLE:
+      case FLOAT:
+      case STRING:
+        return true;
+      default:
+        return false;
     }
 
-    if (hasProgressListener()) {
+  }
 
-      // Get a count of the request
-        query = "SELECT count(*) FROM " + tablename +
-                " WHERE att_conf_id='" + sigInfo.sigId + "'" +
-                " AND data_time>='" + toDBDate(start_date) + "'" +
-                " AND data_time<='" + toDBDate(stop_date) + "'";
+  HdbDoubleDataSet getDoubleDataFromDB(SignalInfo sigInfo,
+                                       String start_date,
+                                       String stop_date) throws HdbFailed {
 
-      try {
+    boolean isRW = sigInfo.isRW();
+    boolean isWO = sigInfo.access == SignalInfo.Access.WO;
 
-        Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    if(useBinaryCopy(sigInfo))
+      return getDoubleDataFromCopy(sigInfo, start_date, stop_date);
 
-        ResultSet rs = statement.executeQuery(query);
-        rs.next();
-        queryCount = rs.getInt(1);
-        statement.close();
+    try {
 
-      } catch (SQLException e) {
-        throw new HdbFailed("Failed to get data for query: " + query + "\n" + e.getMessage());
-      }
+      return pool.execute(c -> {
 
+        // Values are read directly from the result set
+        HdbDoubleDataSet ret = new HdbDoubleDataSet(sigInfo);
+        SqlDataCursor cursor = new PgCursor(null, c, sigInfo, start_date, stop_date, fetchSize).open();
+        try {
+          ResultSet rs = cursor.rs;
+          while (rs.next()) {
+            double v = Double.NaN;
+            double w = Double.NaN;
+            if (!isWO) {
+              v = rs.getDouble(4);
+              if (rs.wasNull()) v = Double.NaN;
+            }
+            if (isRW || isWO) {
+              w = rs.getDouble(5);
+              if (rs.wasNull()) w = Double.NaN;
+            }
+            // Write only attribute, copy write data to read data
+            if (isWO) v = w;
+            ret.add(timeValue(rs.getTimestamp(1)), v, w, rs.getInt(3), rs.getString(2));
+          }
+        } finally {
+          cursor.close();
+        }
+        return ret;
+
+      });
+
+    } catch (SQLException e) {
+      throw new HdbFailed("Failed to get data: " + e.getMessage());
     }
 
-    // Fetch data
-    PreparedStatement statement;
-    if(!prepQueries.containsKey(sigInfo)) {
-      if(isAggregate) {
-        switch (sigInfo.dataType) {
-          case DOUBLE:
-          case FLOAT:
-            query = "SELECT data_time, count_rows, count_errors, count_r, count_nan_r, mean_r, min_r, max_r, stddev_r" +
-                    ", count_w, count_nan_w, mean_w, min_w, max_w, stddev_w" +
-                    " FROM " + tablename +
-                    " WHERE att_conf_id= ?" +
-                    " AND data_time>= ?" +
-                    " AND data_time<= ?" +
-                    " ORDER BY data_time ASC";
-            break;
-          case LONG:
-          case ULONG:
-          case LONG64:
-          case ULONG64:
-          case SHORT:
-          case USHORT:
-            query = "SELECT data_time, count_rows, count_errors, count_r, mean_r, min_r, max_r, stddev_r" +
-                    ", count_w, mean_w, min_w, max_w, stddev_w" +
-                    " FROM " + tablename +
-                    " WHERE att_conf_id= ?" +
-                    " AND data_time>= ?" +
-                    " AND data_time<= ?" +
-                    " ORDER BY data_time ASC";
-            break;
-          default:
-            throw new HdbFailed("Aggregates are not supported for type: " + sigInfo.dataType);
+  }
+
+  private HdbDoubleDataSet getDoubleDataFromCopy(SignalInfo sigInfo,
+                                                 String start_date,
+                                                 String stop_date) throws HdbFailed {
+
+    boolean isWO = sigInfo.access == SignalInfo.Access.WO;
+    boolean isW = sigInfo.isRW() || isWO;
+
+    try {
+
+      return pool.execute(c -> {
+
+        // Values are decoded directly from the COPY stream
+        HdbDoubleDataSet ret = new HdbDoubleDataSet(sigInfo);
+        PgCopyCursor cursor = (PgCopyCursor)new PgCopyCursor(null, c, sigInfo, start_date, stop_date).open();
+        try {
+          PgCopyReader reader = cursor.reader;
+          while (reader.nextTuple() >= 0) {
+            long time = reader.readTime();
+            String errorMsg = reader.readText();
+            int quality = (int)reader.readLong();
+            double v = reader.readDouble();
+            double w = isW ? reader.readDouble() : Double.NaN;
+            // Write only attribute, copy write data to read data
+            if (isWO) v = w;
+            ret.add(time, v, w, quality, errorMsg);
+          }
+        } catch (IOException e) {
+          throw new HdbFailed("Failed to read COPY data: " + e.getMessage());
+        } finally {
+          cursor.close();
         }
+        return ret;
+
+      });
+
+    } catch (SQLException e) {
+      throw new HdbFailed("Failed to get data: " + e.getMessage());
+    }
+
+  }
+
+  HdbDataSet getDecimatedDataFromDB(SignalInfo sigInfo,
+                                    String start_date,
+                                    String stop_date,
+                                    int nbBucket) throws HdbFailed {
+
+    double bucketWidth = (parseTime(stop_date) - parseTime(start_date)) / 1e6 / nbBucket;
+
+    try {
+
+      return pool.execute(c -> {
+
+        ArrayList<HdbData> ret = new ArrayList<>();
+        SqlDataCursor cursor = new PgDecimatedCursor(c, sigInfo, start_date, stop_date, bucketWidth).open();
+        try {
+          while (cursor.hasNextRow())
+            ret.add(cursor.nextRow());
+        } finally {
+          cursor.close();
+        }
+        return new HdbDataSet(ret);
+
+      });
+
+    } catch (SQLException e) {
+      throw new HdbFailed("Failed to get data: " + e.getMessage());
+    }
+
+  }
+
+  private String getTableName(SignalInfo sigInfo) {
+
+    if(sigInfo.isAggregate())
+      return "cagg_" + sigInfo.tableName.substring(4) + "_" + sigInfo.interval.toString();
+    else
+      return sigInfo.tableName;
+
+  }
+
+  private String getDataQuery(SignalInfo sigInfo) throws HdbFailed {
+    return getDataQuery(sigInfo, "?", "?", "?");
+  }
+
+  // Data query with the given id and dates (placeholders or literals)
+  private String getDataQuery(SignalInfo sigInfo, String id, String start, String stop) throws HdbFailed {
+
+    boolean isRW = sigInfo.isRW();
+    boolean isWO = sigInfo.access == SignalInfo.Access.WO;
+    String tablename = getTableName(sigInfo);
+
+    if(sigInfo.isAggregate()) {
+      switch (sigInfo.dataType) {
+        case DOUBLE:
+        case FLOAT:
+          return "SELECT data_time, count_rows, count_errors, count_r, count_nan_r, mean_r, min_r, max_r, stddev_r" +
+                  ", count_w, count_nan_w, mean_w, min_w, max_w, stddev_w" +
+                  " FROM " + tablename +
+                  " WHERE att_conf_id= " + id +
+                  " AND data_time>= " + start +
+                  " AND data_time<= " + stop +
+                  " ORDER BY data_time ASC";
+        case LONG:
+        case ULONG:
+        case LONG64:
+        case ULONG64:
+        case SHORT:
+        case USHORT:
+          return "SELECT data_time, count_rows, count_errors, count_r, mean_r, min_r, max_r, stddev_r" +
+                  ", count_w, mean_w, min_w, max_w, stddev_w" +
+                  " FROM " + tablename +
+                  " WHERE att_conf_id= " + id +
+                  " AND data_time>= " + start +
+                  " AND data_time<= " + stop +
+                  " ORDER BY data_time ASC";
+        default:
+          throw new HdbFailed("Aggregates are not supported for type: " + sigInfo.dataType);
       }
-      else
-      {
-        String rwField = (isRW | isWO) ? ",value_w" : "";
-        query = "SELECT data_time,att_error_desc.error_desc as error_desc,quality,value_r" + rwField +
-                " FROM " + tablename +
-                " left outer join att_error_desc on " + sigInfo.tableName + ".att_error_desc_id = att_error_desc.att_error_desc_id" +
-                " WHERE att_conf_id= ?" +
-                " AND data_time>= ?" +
-                " AND data_time<= ?" +
-                " ORDER BY data_time ASC";
-      }
+    }
+    else
+    {
+      String rwField = (isRW | isWO) ? ",value_w" : "";
+      // Failed rows are not transferred when errors are ignored
+      String errorFilter = isIgnoringErrors() ? " AND " + tablename + ".att_error_desc_id IS NULL" : "";
+      return "SELECT data_time,att_error_desc.error_desc as error_desc,quality,value_r" + rwField +
+              " FROM " + tablename +
+              " left outer join att_error_desc on " + sigInfo.tableName + ".att_error_desc_id = att_error_desc.att_error_desc_id" +
+              " WHERE att_conf_id= " + id +
+              " AND data_time>= " + start +
+              " AND data_time<= " + stop + errorFilter +
+              " ORDER BY data_time ASC";
+    }
+
+  }
+
+  // Cursor over raw or aggregated data. The PostgreSQL driver fetches rows
+  // by fetchSize blocks only when autocommit is off.
+  private class PgCursor extends SqlDataCursor {
+
+    private final SignalInfo sigInfo;
+    private final String start_date;
+    private final String stop_date;
+    private final int size;
+    private final boolean isRW;
+    private final boolean isWO;
+    private final ArrayList<Object> value = new ArrayList<>();
+    private final ArrayList<Object> wvalue = new ArrayList<>();
+
+    PgCursor(ConnectionPool pool, Connection c, SignalInfo sigInfo, String start_date, String stop_date, int size) {
+      super(pool, c);
+      this.sigInfo = sigInfo;
+      this.start_date = start_date;
+      this.stop_date = stop_date;
+      this.size = size;
+      isRW = sigInfo.isRW();
+      isWO = sigInfo.access == SignalInfo.Access.WO;
+    }
 
+    ResultSet executeQuery() throws SQLException, HdbFailed {
+
+      String query = getDataQuery(sigInfo);
+      PreparedStatement statement;
       try {
-        prepQueries.put(sigInfo, connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY));
+        statement = pool.prepare(connection, query);
       } catch (SQLException e) {
         throw new HdbFailed("An error occurred upon query preparation for query: " + query);
       }
+      this.statement = statement;
+      cachedStatement = true;
+
+      //fill the placeholders
+      statement.setInt(1, Integer.parseInt(sigInfo.sigId));
+      statement.setTimestamp(2, Timestamp.valueOf(toDBDate(start_date)));
+      statement.setTimestamp(3, Timestamp.valueOf(toDBDate(stop_date)));
+      statement.setFetchSize(size);
+      // Receive arrays in binary form from the first execution (decoded by PgArrayDecoder)
+      if(sigInfo.isArray() && !sigInfo.isAggregate())
+        statement.unwrap(PGStatement.class).setPrepareThreshold(-1);
+
+      connection.setAutoCommit(false);
+      return statement.executeQuery();
+
     }
 
-    ArrayList<HdbData> ret = new ArrayList<>();
+    HdbData fetch() throws SQLException, HdbFailed {
+
+      if(!rs.next())
+        return null;
+      if(sigInfo.isAggregate())
+        return readAggregateRow(rs, sigInfo);
+      else
+        return readRawRow(rs, sigInfo, isRW, isWO, value, wvalue);
 
+    }
 
-    //retrieve prepared statement
-    statement = prepQueries.get(sigInfo);
-    try {
+    void restore() throws SQLException {
 
-      //fill the placeholders
+      if(!connection.getAutoCommit()) {
+        connection.rollback();
+        connection.setAutoCommit(true);
+      }
+
+    }
+
+  }
+
+  // Cursor over M4 decimated data. The database returns one row per time bucket with the
+  // time and value of its first, minimum, maximum and last samples (first() and last()
+  // are TimescaleDB aggregates), buckets are aligned on the start date.
+  private class PgDecimatedCursor extends SqlDataCursor {
+
+    private final SignalInfo sigInfo;
+    private final String start_date;
+    private final String stop_date;
+    private final double bucketWidth;
+    private final ArrayDeque<HdbData> pending = new ArrayDeque<>();
+
+    PgDecimatedCursor(Connection c, SignalInfo sigInfo, String start_date, String stop_date, double bucketWidth) {
+      super(null, c);
+      this.sigInfo = sigInfo;
+      this.start_date = start_date;
+      this.stop_date = stop_date;
+      this.bucketWidth = bucketWidth;
+    }
+
+    ResultSet executeQuery() throws SQLException, HdbFailed {
+
+      // Write only attributes are decimated on their write value
+      String v = (sigInfo.access == SignalInfo.Access.WO) ? "value_w" : "value_r";
+      String nanFilter = sigInfo.isFloating() ? " AND " + v + "<>'NaN'" : "";
+      String query = "SELECT min(data_time),first(" + v + ",data_time)," +
+              "first(data_time," + v + "),min(" + v + ")," +
+              "last(data_time," + v + "),max(" + v + ")," +
+              "max(data_time),last(" + v + ",data_time)" +
+              " FROM " + getTableName(sigInfo) +
+              " WHERE att_conf_id=?" +
+              " AND data_time>=?" +
+              " AND data_time<=?" +
+              " AND att_error_desc_id IS NULL" +
+              " AND " + v + " IS NOT NULL" + nanFilter +
+              " GROUP BY floor(extract(epoch from data_time-?::timestamp)/?)" +
+              " ORDER BY 1";
+
+      PreparedStatement statement = pool.prepare(connection, query);
+      this.statement = statement;
+      cachedStatement = true;
+
+      Timestamp start = Timestamp.valueOf(toDBDate(start_date));
       statement.setInt(1, Integer.parseInt(sigInfo.sigId));
-      statement.setTimestamp(2, Timestamp.valueOf(toDBDate(start_date)));
+      statement.setTimestamp(2, start);
       statement.setTimestamp(3, Timestamp.valueOf(toDBDate(stop_date)));
-      
-      if(sigInfo.isArray())
-        statement.setFetchSize(arrayFetchSize);
-      else
-        statement.setFetchSize(fetchSize);
+      statement.setTimestamp(4, start);
+      statement.setDouble(5, bucketWidth);
+      statement.setFetchSize(fetchSize);
 
-      //execute query
-      ResultSet rs = statement.executeQuery();
+      connection.setAutoCommit(false);
+      return statement.executeQuery();
 
-      if(isAggregate)
-      {
-        extractAggregateData(rs, sigInfo, isRW, isWO, queryCount, ret);
+    }
+
+    HdbData fetch() throws SQLException, HdbFailed {
+
+      while(pending.isEmpty()) {
+        if(!rs.next())
+          return null;
+        M4Decimator.addBucket(pending, sample(1), sample(3), sample(5), sample(7));
       }
+      return pending.poll();
+
+    }
+
+    // Sample from a (time,value) column pair
+    private HdbData sample(int col) throws SQLException, HdbFailed {
+      long time = timeValue(rs.getTimestamp(col));
+      if(sigInfo.isFloating())
+        return M4Decimator.createSample(sigInfo, time, rs.getDouble(col + 1));
       else
-      {
-        extractRawData(rs, sigInfo, isRW, isWO, queryCount, ret);
+        return M4Decimator.createSample(sigInfo, time, rs.getLong(col + 1));
+    }
+
+    void restore() throws SQLException {
+
+      if(!connection.getAutoCommit()) {
+        connection.rollback();
+        connection.setAutoCommit(true);
       }
 
-    } catch (SQLException e) {
-      throw new HdbFailed("Failed to get data: " + e.getMessage());
     }
 
-    return new HdbDataSet(ret);
   }
 
-  private void extractRawData(ResultSet rs, SignalInfo sigInfo, boolean isRW, boolean isWO, int queryCount, List<HdbData> data) throws SQLException, HdbFailed
-  {
-    long dTime = 0;
-    String errorMsg = null;
-    int quality = 0;
-    int nbRow = 0;
+  // Cursor over raw data transferred with COPY ... TO STDOUT (FORMAT binary).
+  // Fields are in the order of the data query: data_time, error_desc, quality, value_r[, value_w]
+  private class PgCopyCursor extends SqlDataCursor {
+
+    private final SignalInfo sigInfo;
+    private final String start_date;
+    private final String stop_date;
+    private final boolean isWO;
+    private final boolean isW;
+    private PGCopyInputStream stream = null;
+    PgCopyReader reader = null;
+
+    PgCopyCursor(ConnectionPool pool, Connection c, SignalInfo sigInfo, String start_date, String stop_date) {
+      super(pool, c);
+      this.sigInfo = sigInfo;
+      this.start_date = start_date;
+      this.stop_date = stop_date;
+      isWO = sigInfo.access == SignalInfo.Access.WO;
+      isW = sigInfo.isRW() || isWO;
+    }
 
-    ArrayList<Object> value = new ArrayList<>();
-    ArrayList<Object> wvalue = new ArrayList<>();
+    // COPY does not accept parameters, the query does not return a ResultSet
+    ResultSet executeQuery() throws SQLException, HdbFailed {
 
-    boolean isW = isRW | isWO;
-    while (rs.next()) {
-
-      dTime = timeValue(rs.getTimestamp(1));
-      errorMsg = rs.getString(2);
-      quality = rs.getInt(3);
-      value.clear();
-      if(isW)
-        wvalue.clear();
-      if(sigInfo.isArray())
-      {
-        if(!isWO)
-          convertArray(value, rs.getArray(4));
-        if(isW) convertArray(wvalue, rs.getArray(5));
+      String query = "COPY (" + getDataQuery(sigInfo,
+          Integer.toString(Integer.parseInt(sigInfo.sigId)),
+          "'" + toDBDate(start_date) + "'",
+          "'" + toDBDate(stop_date) + "'") + ") TO STDOUT (FORMAT binary)";
+
+      stream = new PGCopyInputStream(connection.unwrap(PGConnection.class), query);
+      reader = new PgCopyReader(stream);
+      try {
+        reader.readHeader();
+      } catch (IOException e) {
+        throw new HdbFailed("Failed to read COPY data: " + e.getMessage());
       }
-      else
-      {
-        switch(sigInfo.dataType)
-        {
-          case BOOLEAN:
-            if(!isWO)
-              value.add(rs.getBoolean(4));
-            if(isW) wvalue.add(rs.getBoolean(5));
-            break;
-          case SHORT:
-          case UCHAR:
-          case LONG:
-          case USHORT:
-          case STATE:
-          case LONG64:
-          case ULONG:
-            if(!isWO)
-              value.add(rs.getLong(4));
-            if(isW) wvalue.add(rs.getLong(5));
-            break;
-          case DOUBLE:
-            if(!isWO)
-              value.add(rs.getDouble(4));
-            if(isW) wvalue.add(rs.getDouble(5));
-            break;
-          case FLOAT:
-            if(!isWO) value.add(rs.getFloat(4));
-            if(isW) wvalue.add(rs.getFloat(5));
-            break;
-          case STRING:
-            if(!isWO) value.add(rs.getString(4));
-            if(isW) wvalue.add(rs.getString(5));
-            break;
+      return null;
+
+    }
+
+    // No statement is involved, the cancel request is sent for the connection
+    void cancelQuery() throws SQLException {
+      connection.unwrap(BaseConnection.class).cancelQuery();
+    }
+
+    HdbData fetch() throws SQLException, HdbFailed {
+
+      try {
+
+        int nbField = reader.nextTuple();
+        if(nbField < 0)
+          return null;
+
+        HdbData hd = HdbData.createData(sigInfo);
+        hd.parseHeader(reader.readTime(), 0, 0, reader.readText(), (int)reader.readLong());
+        if(hd.hasFailed()) {
+          for(int i = 3; i < nbField; i++)
+            reader.skip(reader.fieldLength());
+          return hd;
         }
+
+        if(sigInfo.isArray())
+          readArray((HdbArrayData)hd);
+        else
+          readScalar((HdbScalarData)hd);
+        return hd;
+
+      } catch (IOException e) {
+        throw new HdbFailed("Failed to read COPY data: " + e.getMessage());
       }
 
-      // Write only attribute, copy write data to read data
+    }
+
+    // Write only attribute, read value is the write value
+    private void readScalar(HdbScalarData hd) throws IOException, HdbFailed {
+
+      switch(sigInfo.dataType) {
+        case BOOLEAN: {
+          boolean r = reader.readLong() != 0;
+          boolean w = isW && reader.readLong() != 0;
+          hd.setBoolean(isWO ? w : r, w);
+          break;
+        }
+        case DOUBLE:
+        case FLOAT: {
+          double r = reader.readDouble();
+          double w = isW ? reader.readDouble() : Double.NaN;
+          hd.setDouble(isWO ? w : r, w);
+          break;
+        }
+        case STRING: {
+          String r = reader.readText();
+          String w = isW ? reader.readText() : null;
+          hd.setString(isWO ? w : r, w);
+          break;
+        }
+        default: {
+          long r = reader.readLong();
+          long w = isW ? reader.readLong() : 0;
+          hd.setLong(isWO ? w : r, w);
+          break;
+        }
+      }
+
+    }
+
+    private void readArray(HdbArrayData hd) throws IOException, HdbFailed {
+
+      Object r = reader.readArray();
+      Object w = isW ? reader.readArray() : null;
+      // Read and write values must not share the same array
       if(isWO)
-        value.addAll(wvalue);
+        r = copyArray(w);
 
-      HdbData hd = HdbData.createData(sigInfo);
+      switch(sigInfo.dataType) {
+        case BOOLEAN:
+          hd.setBooleanArray(r == null ? new boolean[0] : (boolean[])r, (boolean[])w);
+          break;
+        case DOUBLE:
+        case FLOAT:
+          hd.setDoubleArray(r == null ? new double[0] : (double[])r, (double[])w);
+          break;
+        case STRING:
+          hd.parseValue(toList((String[])r));
+          if(w != null)
+            hd.parseWriteValue(toList((String[])w));
+          break;
+        default:
+          hd.setLongArray(r == null ? new long[0] : (long[])r, (long[])w);
+          break;
+      }
 
-      hd.parse(
-              dTime,     //Tango timestamp
-              0,         // Event receive timestamp
-              0,         // Recording timestamp
-              errorMsg,  // Error string
-              quality,   // Quality value
-              value, // Read value
-              wvalue // Write value
-      );
-      data.add(hd);
+    }
 
-      if (hasProgressListener() && (nbRow % PROGRESS_NBROW == 0))
-        fireProgressListener((double) nbRow / (double) queryCount);
+    private Object copyArray(Object a) {
+      if(a instanceof double[])
+        return ((double[])a).clone();
+      if(a instanceof long[])
+        return ((long[])a).clone();
+      if(a instanceof boolean[])
+        return ((boolean[])a).clone();
+      return a;
+    }
 
-      nbRow++;
+    private ArrayList<Object> toList(String[] a) {
+      ArrayList<Object> ret = new ArrayList<>();
+      if(a != null)
+        for(String str : a)
+          ret.add(str);
+      return ret;
+    }
+
+    // Cancels the COPY if not fully read
+    void restore() throws SQLException {
+
+      if(stream != null) {
+        try {
+          stream.close();
+        } catch (IOException e) {
+          throw new SQLException(e.getMessage());
+        }
+      }
 
     }
+
+  }
+
+  private HdbData readRawRow(ResultSet rs, SignalInfo sigInfo, boolean isRW, boolean isWO,
+                             ArrayList<Object> value, ArrayList<Object> wvalue) throws SQLException, HdbFailed
+  {
+    boolean isW = isRW | isWO;
+
+    long dTime = timeValue(rs.getTimestamp(1));
+    String errorMsg = rs.getString(2);
+    int quality = rs.getInt(3);
+
+    if(!sigInfo.isArray())
+      return readScalarRow(rs, sigInfo, isW, isWO, dTime, errorMsg, quality);
+    if(sigInfo.dataType!=SignalInfo.Type.STRING)
+      return readPrimitiveArrayRow(rs, sigInfo, isW, isWO, dTime, errorMsg, quality);
+
+    value.clear();
+    if(isW)
+      wvalue.clear();
+    if(!isWO)
+      convertArray(value, rs.getArray(4));
+    if(isW) convertArray(wvalue, rs.getArray(5));
+
+    // Write only attribute, copy write data to read data
+    if(isWO)
+      value.addAll(wvalue);
+
+    HdbData hd = HdbData.createData(sigInfo);
+
+    hd.parse(
+            dTime,     //Tango timestamp
+            0,         // Event receive timestamp
+            0,         // Recording timestamp
+            errorMsg,  // Error string
+            quality,   // Quality value
+            value, // Read value
+            wvalue // Write value
+    );
+    return hd;
   }
 
-  private void extractAggregateData(ResultSet rs, SignalInfo info, boolean isRW, boolean isWO, int queryCount, List<HdbData> data) throws SQLException, HdbFailed
+  // Array values are decoded from the raw column bytes into primitive arrays
+  private HdbData readPrimitiveArrayRow(ResultSet rs, SignalInfo sigInfo, boolean isW, boolean isWO,
+                                        long dTime, String errorMsg, int quality) throws SQLException, HdbFailed
+  {
+    HdbArrayData hd = (HdbArrayData)HdbData.createData(sigInfo);
+    hd.parseHeader(dTime, 0, 0, errorMsg, quality);
+    if(hd.hasFailed())
+      return hd;
+
+    // Write only attribute, read value is the write value
+    byte[] r = isWO ? null : rs.getBytes(4);
+    byte[] w = isW ? rs.getBytes(5) : null;
+    if(isWO)
+      r = w;
+
+    try {
+      switch (sigInfo.dataType) {
+        case BOOLEAN:
+          hd.setBooleanArray(PgArrayDecoder.toBooleanArray(r), isW ? PgArrayDecoder.toBooleanArray(w) : null);
+          break;
+        case DOUBLE:
+        case FLOAT:
+          hd.setDoubleArray(PgArrayDecoder.toDoubleArray(r), isW ? PgArrayDecoder.toDoubleArray(w) : null);
+          break;
+        default:
+          hd.setLongArray(PgArrayDecoder.toLongArray(r), isW ? PgArrayDecoder.toLongArray(w) : null);
+          break;
+      }
+    } catch (IOException e) {
+      throw new HdbFailed("Failed to decode array of " + sigInfo.name + ": " + e.getMessage());
+    }
+    return hd;
+  }
+
+  // Scalar values are given to the typed setters (no boxing)
+  private HdbData readScalarRow(ResultSet rs, SignalInfo sigInfo, boolean isW, boolean isWO,
+                                long dTime, String errorMsg, int quality) throws SQLException, HdbFailed
+  {
+    HdbScalarData hd = (HdbScalarData)HdbData.createData(sigInfo);
+    hd.parseHeader(dTime, 0, 0, errorMsg, quality);
+    if(hd.hasFailed())
+      return hd;
+
+    // Write only attribute, read value is the write value
+    switch(sigInfo.dataType)
+    {
+      case BOOLEAN: {
+        boolean w = isW && rs.getBoolean(5);
+        hd.setBoolean(isWO ? w : rs.getBoolean(4), w);
+        break;
+      }
+      case SHORT:
+      case UCHAR:
+      case LONG:
+      case USHORT:
+      case STATE:
+      case LONG64:
+      case ULONG: {
+        long w = isW ? rs.getLong(5) : 0;
+        hd.setLong(isWO ? w : rs.getLong(4), w);
+        break;
+      }
+      case DOUBLE: {
+        double w = isW ? rs.getDouble(5) : Double.NaN;
+        hd.setDouble(isWO ? w : rs.getDouble(4), w);
+        break;
+      }
+      case FLOAT: {
+        double w = isW ? rs.getFloat(5) : Double.NaN;
+        hd.setDouble(isWO ? w : rs.getFloat(4), w);
+        break;
+      }
+      case STRING: {
+        String w = isW ? rs.getString(5) : null;
+        hd.setString(isWO ? w : rs.getString(4), w);
+        break;
+      }
+    }
+    return hd;
+  }
+
+  private HdbData readAggregateRow(ResultSet rs, SignalInfo info) throws SQLException, HdbFailed
   {
-    int nbRow = 0;
     boolean isFloating = info.dataType == HdbSigInfo.Type.DOUBLE || info.dataType == HdbSigInfo.Type.FLOAT;
     boolean isArray = info.isArray();
     int floatingOffset1 = 0;
@@ -512,94 +1030,85 @@ public class PostgreSQLSchema extends HdbReader {
       floatingOffset2 = 2;
     }
 
-    long dTime = 0;
+    long dTime;
     long count_rows;
     long count_errors;
 
-    while (rs.next()) {
-      ArrayList<Long> count_r = new ArrayList<>();
-      ArrayList<Long> count_nan_r = new ArrayList<>();
-      ArrayList<Double> mean_r = new ArrayList<>();
-      ArrayList<Number> min_r = new ArrayList<>();
-      ArrayList<Number> max_r = new ArrayList<>();
-      ArrayList<Double> stddev_r = new ArrayList<>();
-      ArrayList<Long> count_w = new ArrayList<>();
-      ArrayList<Long> count_nan_w = new ArrayList<>();
-      ArrayList<Double> mean_w = new ArrayList<>();
-      ArrayList<Number> min_w = new ArrayList<>();
-      ArrayList<Number> max_w = new ArrayList<>();
-      ArrayList<Double> stddev_w = new ArrayList<>();
-      dTime = timeValue(rs.getTimestamp(1));
-      count_rows = rs.getLong(2);
-      count_errors = rs.getLong(3);
-      if (isArray) {
-        convertLongArray(count_r, rs.getArray(4));
-        convertDoubleArray(mean_r, rs.getArray(6 - floatingOffset1));
-        convertNumberArray(min_r, rs.getArray(7 - floatingOffset1), info.dataType);
-        convertNumberArray(max_r, rs.getArray(8 - floatingOffset1), info.dataType);
-        convertDoubleArray(stddev_r, rs.getArray(9 - floatingOffset1));
-        convertLongArray(count_w, rs.getArray(10 - floatingOffset1));
-        convertDoubleArray(mean_w, rs.getArray(12 - floatingOffset2));
-        convertNumberArray(min_w, rs.getArray(13 - floatingOffset2), info.dataType);
-        convertNumberArray(max_w, rs.getArray(14 - floatingOffset2), info.dataType);
-        convertDoubleArray(stddev_w, rs.getArray(15 - floatingOffset2));
-        if(isFloating)
-        {
-          convertLongArray(count_nan_r, rs.getArray(5));
-          convertLongArray(count_nan_w, rs.getArray(11));
-        }
-      }
-      else
+    ArrayList<Long> count_r = new ArrayList<>();
+    ArrayList<Long> count_nan_r = new ArrayList<>();
+    ArrayList<Double> mean_r = new ArrayList<>();
+    ArrayList<Number> min_r = new ArrayList<>();
+    ArrayList<Number> max_r = new ArrayList<>();
+    ArrayList<Double> stddev_r = new ArrayList<>();
+    ArrayList<Long> count_w = new ArrayList<>();
+    ArrayList<Long> count_nan_w = new ArrayList<>();
+    ArrayList<Double> mean_w = new ArrayList<>();
+    ArrayList<Number> min_w = new ArrayList<>();
+    ArrayList<Number> max_w = new ArrayList<>();
+    ArrayList<Double> stddev_w = new ArrayList<>();
+    dTime = timeValue(rs.getTimestamp(1));
+    count_rows = rs.getLong(2);
+    count_errors = rs.getLong(3);
+    if (isArray) {
+      convertLongArray(count_r, rs.getArray(4));
+      convertDoubleArray(mean_r, rs.getArray(6 - floatingOffset1));
+      convertNumberArray(min_r, rs.getArray(7 - floatingOffset1), info.dataType);
+      convertNumberArray(max_r, rs.getArray(8 - floatingOffset1), info.dataType);
+      convertDoubleArray(stddev_r, rs.getArray(9 - floatingOffset1));
+      convertLongArray(count_w, rs.getArray(10 - floatingOffset1));
+      convertDoubleArray(mean_w, rs.getArray(12 - floatingOffset2));
+      convertNumberArray(min_w, rs.getArray(13 - floatingOffset2), info.dataType);
+      convertNumberArray(max_w, rs.getArray(14 - floatingOffset2), info.dataType);
+      convertDoubleArray(stddev_w, rs.getArray(15 - floatingOffset2));
+      if(isFloating)
       {
-        count_r.add(rs.getLong(4));
-        mean_r.add(rs.getDouble(6 - floatingOffset1));
-        min_r.add(extractNumber(rs, 7 - floatingOffset1, info.dataType));
-        max_r.add(extractNumber(rs, 8 - floatingOffset1, info.dataType));
-        stddev_r.add(rs.getDouble(9 - floatingOffset1));
-        count_w.add(rs.getLong(10 - floatingOffset1));
-        mean_w.add(rs.getDouble(12 - floatingOffset2));
-        min_w.add(extractNumber(rs, 13-floatingOffset2, info.dataType));
-        max_w.add(extractNumber(rs, 14-floatingOffset2, info.dataType));
-        stddev_w.add(rs.getDouble(15 - floatingOffset2));
-        if(isFloating) {
-          count_nan_r.add(rs.getLong(5));
-          count_nan_w.add(rs.getLong(11));
-        }
+        convertLongArray(count_nan_r, rs.getArray(5));
+        convertLongArray(count_nan_w, rs.getArray(11));
+      }
+    }
+    else
+    {
+      count_r.add(rs.getLong(4));
+      mean_r.add(rs.getDouble(6 - floatingOffset1));
+      min_r.add(extractNumber(rs, 7 - floatingOffset1, info.dataType));
+      max_r.add(extractNumber(rs, 8 - floatingOffset1, info.dataType));
+      stddev_r.add(rs.getDouble(9 - floatingOffset1));
+      count_w.add(rs.getLong(10 - floatingOffset1));
+      mean_w.add(rs.getDouble(12 - floatingOffset2));
+      min_w.add(extractNumber(rs, 13-floatingOffset2, info.dataType));
+      max_w.add(extractNumber(rs, 14-floatingOffset2, info.dataType));
+      stddev_w.add(rs.getDouble(15 - floatingOffset2));
+      if(isFloating) {
+        count_nan_r.add(rs.getLong(5));
+        count_nan_w.add(rs.getLong(11));
       }
-
-      HdbData hd = HdbData.createData(info);
-
-      hd.parseAggregate(
-              dTime,     //Tango timestamp
-              count_rows,
-              count_errors,
-              count_r,
-              count_nan_r,
-              mean_r,
-              min_r,
-              max_r,
-              stddev_r,
-              count_w,
-              count_nan_w,
-              mean_w,
-              min_w,
-              max_w,
-              stddev_w
-      );
-
-      data.add(hd);
-
-      if (hasProgressListener() && (nbRow % PROGRESS_NBROW == 0))
-        fireProgressListener((double) nbRow / (double) queryCount);
-
-      nbRow++;
     }
+
+    HdbData hd = HdbData.createData(info);
+
+    hd.parseAggregate(
+            dTime,     //Tango timestamp
+            count_rows,
+            count_errors,
+            count_r,
+            count_nan_r,
+            mean_r,
+            min_r,
+            max_r,
+            stddev_r,
+            count_w,
+            count_nan_w,
+            mean_w,
+            min_w,
+            max_w,
+            stddev_w
+    );
+
+    return hd;
   }
 
   public HdbSigParam getLastParam(SignalInfo sigInfo) throws HdbFailed {
 
-    connectionCheck();
-
     String query = "SELECT recv_time,label,unit,standard_unit,display_unit,format,"+
         "archive_rel_change,archive_abs_change,archive_period,description" +
         " FROM att_parameter " +
@@ -610,35 +1119,38 @@ public class PostgreSQLSchema extends HdbReader {
 
     try {
 
-      Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY,ResultSet.CONCUR_READ_ONLY);
-      ResultSet rs = statement.executeQuery(query);
-      if(rs.next()) {
+      pool.execute(c -> {
+        try (Statement statement = c.createStatement(ResultSet.TYPE_FORWARD_ONLY,ResultSet.CONCUR_READ_ONLY)) {
+          ResultSet rs = statement.executeQuery(query);
+          if(rs.next()) {
+
+            ret.recvTime = timeValue(rs.getTimestamp(1));
+            ret.insertTime = 0;
+            ret.label = rs.getString(2);
+            ret.unit = rs.getString(3);
+            try {
+              ret.standard_unit = Double.parseDouble(rs.getString(4));
+            } catch (NumberFormatException e) {
+              ret.standard_unit = 1.0;
+            }
+            try {
+              ret.display_unit = Double.parseDouble( rs.getString(5));
+            } catch (NumberFormatException e) {
+              ret.display_unit = 1.0;
+            }
+            ret.format = rs.getString(6);
+            ret.archive_rel_change = rs.getString(7);
+            ret.archive_abs_change = rs.getString(8);
+            ret.archive_period = rs.getString(9);
+            ret.description = rs.getString(10);
+
+          } else {
+            throw new HdbFailed("Cannot get parameter for " + sigInfo.name);
+          }
 
-        ret.recvTime = timeValue(rs.getTimestamp(1));
-        ret.insertTime = 0;
-        ret.label = rs.getString(2);
-        ret.unit = rs.getString(3);
-        try {
-          ret.standard_unit = Double.parseDouble(rs.getString(4));
-        } catch (NumberFormatException e) {
-          ret.standard_unit = 1.0;
-        }
-        try {
-          ret.display_unit = Double.parseDouble( rs.getString(5));
-        } catch (NumberFormatException e) {
-          ret.display_unit = 1.0;
         }
-        ret.format = rs.getString(6);
-        ret.archive_rel_change = rs.getString(7);
-        ret.archive_abs_change = rs.getString(8);
-        ret.archive_period = rs.getString(9);
-        ret.description = rs.getString(10);
-
-      } else {
-        throw new HdbFailed("Cannot get parameter for " + sigInfo.name);
-      }
-
-      statement.close();
+        return null;
+      });
 
     } catch (SQLException e) {
       throw new HdbFailed("Failed to get parameter history: "+e.getMessage());
@@ -660,7 +1172,6 @@ public class PostgreSQLSchema extends HdbReader {
                                           String stop_date) throws HdbFailed {
 
     checkDates(start_date,stop_date);
-    connectionCheck();
 
     String query = "SELECT recv_time,label,unit,standard_unit,display_unit,format,"+
         "archive_rel_change,archive_abs_change,archive_period,description" +
@@ -674,48 +1185,120 @@ public class PostgreSQLSchema extends HdbReader {
 
     try {
 
-      Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY,ResultSet.CONCUR_READ_ONLY);
-      ResultSet rs = statement.executeQuery(query);
-      while(rs.next()) {
+      pool.execute(c -> {
+        ret.clear();
+        try (Statement statement = c.createStatement(ResultSet.TYPE_FORWARD_ONLY,ResultSet.CONCUR_READ_ONLY)) {
+          ResultSet rs = statement.executeQuery(query);
+          while(rs.next()) {
+
+            HdbSigParam hd = new HdbSigParam(sigInfo);
+            hd.recvTime = timeValue(rs.getTimestamp(1));
+            hd.insertTime = 0;
+            hd.label = rs.getString(2);
+            hd.unit = rs.getString(3);
+            try {
+              hd.standard_unit = Double.parseDouble(rs.getString(4));
+            } catch (NumberFormatException e) {
+              hd.standard_unit = 1.0;
+            }
+            try {
+              hd.display_unit = Double.parseDouble( rs.getString(5));
+            } catch (NumberFormatException e) {
+              hd.display_unit = 1.0;
+            }
+            hd.format = rs.getString(6);
+            hd.archive_rel_change = rs.getString(7);
+            hd.archive_abs_change = rs.getString(8);
+            hd.archive_period = rs.getString(9);
+            hd.description = rs.getString(10);
+
+            ret.add(hd);
+
+          }
 
-        HdbSigParam hd = new HdbSigParam(sigInfo);
-        hd.recvTime = timeValue(rs.getTimestamp(1));
-        hd.insertTime = 0;
-        hd.label = rs.getString(2);
-        hd.unit = rs.getString(3);
-        try {
-          hd.standard_unit = Double.parseDouble(rs.getString(4));
-        } catch (NumberFormatException e) {
-          hd.standard_unit = 1.0;
         }
-        try {
-          hd.display_unit = Double.parseDouble( rs.getString(5));
-        } catch (NumberFormatException e) {
-          hd.display_unit = 1.0;
-        }
-        hd.format = rs.getString(6);
-        hd.archive_rel_change = rs.getString(7);
-        hd.archive_abs_change = rs.getString(8);
-        hd.archive_period = rs.getString(9);
-        hd.description = rs.getString(10);
+        return null;
+      });
+
+    } catch (SQLException e) {
+      throw new HdbFailed("Failed to get parameter history: "+e.getMessage());
+    }
 
-        ret.add(hd);
+    return ret;
+  }
 
+  // Errors of all signals are fetched with a single query (one sub query per data table).
+  // The att_error_desc_id IS NOT NULL condition is applied on the range of the
+  // (att_conf_id,data_time) index, a partial index such as
+  //   CREATE INDEX ON att_scalar_devdouble (att_conf_id,data_time) WHERE att_error_desc_id IS NOT NULL
+  // makes the scan proportional to the number of errors instead of the number of samples.
+  HdbDataSet[] findErrorsFromDB(SignalInfo[] sigInfos,
+                                String start_date,
+                                String stop_date) throws HdbFailed {
+
+    HdbDataSet[] ret = new HdbDataSet[sigInfos.length];
+    for(int i=0;i<ret.length;i++)
+      ret[i] = new HdbDataSet();
+    if(sigInfos.length==0)
+      return ret;
+
+    // Signal ids per data table and result indexes per signal id
+    LinkedHashMap<String,ArrayList<String>> tables = new LinkedHashMap<>();
+    HashMap<Integer,ArrayList<Integer>> indexes = new HashMap<>();
+    for(int i=0;i<sigInfos.length;i++) {
+      SignalInfo info = sigInfos[i];
+      if(info.tableName==null || info.tableName.isEmpty())
+        throw new HdbFailed("Invalid request on a not supported type: type=" + info.dataType + ", format:" + info.format + ", access:" + info.access);
+      Integer id = Integer.parseInt(info.sigId);
+      ArrayList<Integer> idx = indexes.get(id);
+      if(idx==null) {
+        idx = new ArrayList<>();
+        indexes.put(id,idx);
+        tables.computeIfAbsent(sigInfos[i].tableName, t -> new ArrayList<>()).add(sigInfos[i].sigId);
       }
+      idx.add(i);
+    }
 
-      statement.close();
+    StringBuilder query = new StringBuilder();
+    for(String table : tables.keySet()) {
+      if(query.length()>0)
+        query.append(" UNION ALL ");
+      query.append("SELECT t.att_conf_id,t.data_time,e.error_desc,t.quality FROM ").append(table).append(" t")
+          .append(" JOIN att_error_desc e ON t.att_error_desc_id=e.att_error_desc_id")
+          .append(" WHERE t.att_conf_id IN (").append(String.join(",", tables.get(table))).append(")")
+          .append(" AND t.data_time>='").append(toDBDate(start_date)).append("'")
+          .append(" AND t.data_time<='").append(toDBDate(stop_date)).append("'")
+          .append(" AND t.att_error_desc_id IS NOT NULL");
+    }
+    query.append(" ORDER BY 1,2");
+
+    try {
+
+      pool.execute(c -> {
+        for(HdbDataSet set : ret)
+          set.clear();
+        try (Statement statement = c.createStatement(ResultSet.TYPE_FORWARD_ONLY,ResultSet.CONCUR_READ_ONLY)) {
+          ResultSet rs = statement.executeQuery(query.toString());
+          while(rs.next()) {
+            long time = timeValue(rs.getTimestamp(2));
+            String errorMsg = rs.getString(3);
+            int quality = rs.getInt(4);
+            for(int i : indexes.get(rs.getInt(1))) {
+              HdbData hd = HdbData.createData(sigInfos[i]);
+              hd.parseHeader(time, 0, 0, errorMsg, quality);
+              ret[i].add(hd);
+            }
+          }
+        }
+        return null;
+      });
 
     } catch (SQLException e) {
-      throw new HdbFailed("Failed to get parameter history: "+e.getMessage());
+      throw new HdbFailed("Failed to get errors: "+e.getMessage());
     }
 
     return ret;
-  }
 
-  public HdbDataSet findErrors(String attName,
-                               String start_date,
-                               String stop_date) throws HdbFailed {
-    throw new HdbFailed("Not implemented");
   }
 
   // ---------------------------------------------------------------------------------------
@@ -817,16 +1400,19 @@ public class PostgreSQLSchema extends HdbReader {
 
   private String[] getList(String query) throws HdbFailed {
 
-    connectionCheck();
 
     ArrayList<String> list = new ArrayList<>();
 
     try {
-      Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY,ResultSet.CONCUR_READ_ONLY);
-      ResultSet resultSet = statement.executeQuery(query);
-      while (resultSet.next())
-        list.add(resultSet.getString(1));
-      statement.close();
+      pool.execute(c -> {
+        list.clear();
+        try (Statement statement = c.createStatement(ResultSet.TYPE_FORWARD_ONLY,ResultSet.CONCUR_READ_ONLY)) {
+          ResultSet resultSet = statement.executeQuery(query);
+          while (resultSet.next())
+            list.add(resultSet.getString(1));
+        }
+        return null;
+      });
     } catch (SQLException e) {
       throw new HdbFailed("Failed to retrieve attribute list: "+e.getMessage());
     }
@@ -851,6 +1437,7 @@ public class PostgreSQLSchema extends HdbReader {
     switch(feat)
     {
       case AGGREGATES:
+      case CONCURRENT_EXTRACTION:
         return true;
       default:
         return false;
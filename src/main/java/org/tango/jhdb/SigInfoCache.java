@@ -0,0 +1,121 @@
+//+======================================================================
+// $Source: $
+//
+// Project:   Tango
+//
+// Description:  java source code for HDB extraction library.
+//
+// $Author: pons $
+//
+// Copyright (C) :      2015
+//						European Synchrotron Radiation Facility
+//                      BP 220, Grenoble 38043
+//                      FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision $
+//
+//-======================================================================
+package org.tango.jhdb;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of signal infos keyed by the fully qualified attribute name.
+ * Entries expire after a time to live, the least recently used one is dropped when full.
+ * Copies are stored and returned as signal infos can be modified by the callers.
+ */
+class SigInfoCache {
+
+  private static class Entry {
+    final SignalInfo info;
+    final long expiry;
+    Entry(SignalInfo info, long expiry) {
+      this.info = info;
+      this.expiry = expiry;
+    }
+  }
+
+  private final LruCache<String, Entry> entries;
+  // Time to live in nanoseconds (0 for no expiry)
+  private final long ttl;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  SigInfoCache(int maxSize, long ttlMs) {
+    entries = new LruCache<String, Entry>(maxSize);
+    ttl = Math.max(0, ttlMs) * 1000000L;
+  }
+
+  // Returns a copy of the cached info, null if absent or expired
+  HdbSigInfo get(String attName) {
+
+    Entry e;
+    synchronized (entries) {
+      e = entries.get(attName);
+      if (e != null && ttl > 0 && System.nanoTime() - e.expiry > 0) {
+        entries.remove(attName);
+        e = null;
+      }
+    }
+    if (e == null) {
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    return new HdbSigInfo(e.info);
+
+  }
+
+  void put(String attName, SignalInfo info) {
+    Entry e = new Entry(new SignalInfo(info), System.nanoTime() + ttl);
+    synchronized (entries) {
+      entries.put(attName, e);
+    }
+  }
+
+  void invalidate(String attName) {
+    synchronized (entries) {
+      entries.remove(attName);
+    }
+  }
+
+  void clear() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  int getMaxSize() {
+    return entries.getMaxSize();
+  }
+
+  long getHits() {
+    return hits.get();
+  }
+
+  long getMisses() {
+    return misses.get();
+  }
+
+}
@@ -0,0 +1,204 @@
+//+======================================================================
+// $Source: $
+//
+// Project:   Tango
+//
+// Description:  java source code for HDB extraction library.
+//
+// $Author: pons $
+//
+// Copyright (C) :      2015
+//						European Synchrotron Radiation Facility
+//                      BP 220, Grenoble 38043
+//                      FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision $
+//
+//-======================================================================
+package org.tango.jhdb;
+
+import org.tango.jhdb.data.HdbData;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Cursor over a JDBC ResultSet, rows are decoded by the SQL readers.
+ * When the cursor owns its connection, the connection is given back to the pool on close.
+ */
+abstract class SqlDataCursor implements HdbDataCursor {
+
+  // Pool owning the connection (null when the connection is managed by the caller)
+  private final ConnectionPool owner;
+  final Connection connection;
+  volatile Statement statement = null;
+  // Statement owned by the statement cache of the pool, only the result set is closed
+  boolean cachedStatement = false;
+  ResultSet rs = null;
+
+  private HdbData next = null;
+  private boolean done = false;
+  private boolean closed = false;
+  // Request attached to the thread which opened the cursor
+  private HdbRequest request = null;
+  private final Runnable cancelHandler = this::abort;
+
+  SqlDataCursor(ConnectionPool owner, Connection connection) {
+    this.owner = owner;
+    this.connection = connection;
+  }
+
+  /**
+   * Executes the query, the cursor is closed in case of failure.
+   */
+  SqlDataCursor open() throws SQLException, HdbFailed {
+
+    request = HdbRequest.current();
+    try {
+      if (request != null) {
+        request.check();
+        request.addCancelHandler(cancelHandler);
+      }
+      rs = executeQuery();
+      return this;
+    } catch (SQLException | HdbFailed | RuntimeException e) {
+      close();
+      if (!(e instanceof RuntimeException) && isAborted())
+        throw request.failure();
+      throw e;
+    }
+
+  }
+
+  // Prepares the statement and executes the query
+  abstract ResultSet executeQuery() throws SQLException, HdbFailed;
+
+  // Decodes the next data from the result set, returns null at the end
+  abstract HdbData fetch() throws SQLException, HdbFailed;
+
+  // Restores the connection state before it goes back to the pool
+  void restore() throws SQLException {
+  }
+
+  // Aborts the running query, called from the thread cancelling the request
+  void cancelQuery() throws SQLException {
+    Statement s = statement;
+    if (s != null)
+      s.cancel();
+  }
+
+  private synchronized void abort() {
+
+    if (closed)
+      return;
+    try {
+      cancelQuery();
+    } catch (SQLException e) {
+      System.out.println("Warning, failed to cancel query: " + e.getMessage());
+    }
+
+  }
+
+  private boolean isAborted() {
+    return request != null && request.isCancelled();
+  }
+
+  boolean hasNextRow() throws SQLException, HdbFailed {
+
+    if (next == null && !done) {
+      if (isAborted())
+        throw request.failure();
+      try {
+        next = fetch();
+      } catch (SQLException | HdbFailed e) {
+        // Errors of a cancelled query are reported as a cancellation
+        if (isAborted())
+          throw request.failure();
+        throw e;
+      }
+      done = (next == null);
+    }
+    return next != null;
+
+  }
+
+  HdbData nextRow() throws SQLException, HdbFailed {
+
+    if (!hasNextRow())
+      throw new HdbFailed("No more data");
+    HdbData ret = next;
+    next = null;
+    return ret;
+
+  }
+
+  public boolean hasNext() throws HdbFailed {
+
+    try {
+      return hasNextRow();
+    } catch (SQLException e) {
+      throw new HdbFailed("Failed to get data: " + e.getMessage());
+    }
+
+  }
+
+  public HdbData next() throws HdbFailed {
+
+    try {
+      return nextRow();
+    } catch (SQLException e) {
+      throw new HdbFailed("Failed to get data: " + e.getMessage());
+    }
+
+  }
+
+  public void close() {
+
+    synchronized (this) {
+      if (closed)
+        return;
+      closed = true;
+    }
+    if (request != null)
+      request.removeCancelHandler(cancelHandler);
+
+    boolean broken = false;
+    try {
+      if (cachedStatement) {
+        if (rs != null)
+          rs.close();
+      } else if (statement != null) {
+        statement.close();
+      }
+      restore();
+    } catch (SQLException e) {
+      broken = true;
+    }
+
+    if (owner != null) {
+      if (broken)
+        owner.invalidate(connection);
+      else
+        owner.release(connection);
+    }
+
+  }
+
+}
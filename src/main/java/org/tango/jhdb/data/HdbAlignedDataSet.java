@@ -0,0 +1,364 @@
+//+======================================================================
+// $Source: $
+//
+// Project:   Tango
+//
+// Description:  java source code for HDB extraction library.
+//
+// $Author: pons $
+//
+// Copyright (C) :      2015
+//						European Synchrotron Radiation Facility
+//                      BP 220, Grenoble 38043
+//                      FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision $
+//
+//-======================================================================
+package org.tango.jhdb.data;
+
+import org.tango.jhdb.HdbFailed;
+import org.tango.jhdb.SignalInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Several HDB datasets aligned on a common timeline. Each row refers to one sample (or none)
+ * of each dataset, samples are not copied: a sample keeps its own timestamp which may be
+ * before the row time.
+ */
+public class HdbAlignedDataSet {
+
+  private final HdbDataSet[] sets;
+  private final long[] time;
+  // Sample index in each dataset by row, -1 when there is no sample
+  private final int[][] index;
+
+  /**
+   * Construct an aligned dataset
+   * @param sets Source datasets
+   * @param time Row timestamps (us since epoch)
+   * @param index Sample index of each row in each source dataset (-1 for no sample)
+   */
+  public HdbAlignedDataSet(HdbDataSet[] sets, long[] time, int[][] index) {
+    this.sets = sets;
+    this.time = time;
+    this.index = index;
+  }
+
+  /**
+   * Aligns datasets on the union of their timestamps, each row holds the last sample at or
+   * before the row time (or the first sample if the dataset starts later). Datasets are
+   * merged in one pass, rows are built in O(N log k) for k datasets of N samples in total.
+   * @param sets Datasets sorted by time
+   * @throws HdbFailed If a dataset is empty
+   */
+  public static HdbAlignedDataSet filled(HdbDataSet[] sets) throws HdbFailed {
+
+    int k = sets.length;
+    long[][] times = new long[k][];
+    int total = 0;
+    for(int i=0;i<k;i++) {
+      if(sets[i].isEmpty())
+        throw new HdbFailed("FILLED mode cannot be done on empty HdbDataSet");
+      times[i] = sets[i].getDataTimeArray();
+      total += times[i].length;
+    }
+
+    // k-way merge of the timestamps, the heap holds the datasets ordered by their next time
+    long[] timeline = new long[total];
+    int n = 0;
+    int[] pos = new int[k];
+    int[] heap = new int[k];
+    for(int i=0;i<k;i++) {
+      heap[i] = i;
+      siftUp(heap, i, times, pos);
+    }
+    int heapSize = k;
+    while(heapSize>0) {
+      int s = heap[0];
+      long t = times[s][pos[s]];
+      if(n==0 || timeline[n-1]!=t)
+        timeline[n++] = t;
+      pos[s]++;
+      if(pos[s]==times[s].length)
+        heap[0] = heap[--heapSize];
+      siftDown(heap, heapSize, times, pos);
+    }
+
+    long[] rowTime = Arrays.copyOf(timeline, n);
+    int[][] index = new int[k][n];
+    for(int i=0;i<k;i++)
+      alignBefore(times[i], rowTime, index[i]);
+    return new HdbAlignedDataSet(sets, rowTime, index);
+
+  }
+
+  /**
+   * Aligns datasets on the timestamps of the dataset having the lowest number of samples.
+   * Leading reference samples which are before the start of all other datasets are skipped.
+   * Without tolerance (negative value), each row holds the last sample at or before the row
+   * time (or the first sample if the dataset starts later). With a tolerance, each row holds
+   * the nearest sample within the tolerance, or no sample. All datasets are walked once.
+   * @param sets Datasets sorted by time
+   * @param tolerance Maximum time distance (us) or -1
+   */
+  public static HdbAlignedDataSet correlated(HdbDataSet[] sets, long tolerance) {
+
+    int k = sets.length;
+    long[][] times = new long[k][];
+    int ref = 0;
+    for(int i=0;i<k;i++) {
+      times[i] = sets[i].getDataTimeArray();
+      if(times[i].length<times[ref].length)
+        ref = i;
+    }
+
+    long start = Long.MIN_VALUE;
+    if(k>1) {
+      start = Long.MAX_VALUE;
+      for(int i=0;i<k;i++)
+        if(i!=ref && times[i].length>0)
+          start = Math.min(start, times[i][0]);
+    }
+    long[] refTime = (k==0) ? new long[0] : times[ref];
+    int first = 0;
+    while(first<refTime.length && refTime[first]<start)
+      first++;
+
+    long[] rowTime = Arrays.copyOfRange(refTime, first, refTime.length);
+    int n = rowTime.length;
+    int[][] index = new int[k][n];
+    for(int i=0;i<k;i++) {
+      if(i==ref) {
+        for(int r=0;r<n;r++)
+          index[i][r] = first+r;
+      } else if(tolerance<0) {
+        alignBefore(times[i], rowTime, index[i]);
+      } else {
+        alignNearest(times[i], rowTime, tolerance, index[i]);
+      }
+    }
+    return new HdbAlignedDataSet(sets, rowTime, index);
+
+  }
+
+  // Last sample at or before each row, the first sample for rows before the dataset start
+  private static void alignBefore(long[] t, long[] rowTime, int[] index) {
+
+    if(t.length==0) {
+      Arrays.fill(index, -1);
+      return;
+    }
+    int j = 0;
+    for(int r=0;r<rowTime.length;r++) {
+      while(j+1<t.length && t[j+1]<=rowTime[r])
+        j++;
+      index[r] = j;
+    }
+
+  }
+
+  // Nearest sample of each row within the tolerance
+  private static void alignNearest(long[] t, long[] rowTime, long tolerance, int[] index) {
+
+    int j = -1;
+    for(int r=0;r<rowTime.length;r++) {
+      long rt = rowTime[r];
+      while(j+1<t.length && t[j+1]<=rt)
+        j++;
+      int best = -1;
+      long bestDt = Long.MAX_VALUE;
+      if(j>=0 && rt-t[j]<=tolerance) {
+        best = j;
+        bestDt = rt-t[j];
+      }
+      if(j+1<t.length && t[j+1]-rt<=tolerance && t[j+1]-rt<bestDt)
+        best = j+1;
+      index[r] = best;
+    }
+
+  }
+
+  private static long key(int s, long[][] times, int[] pos) {
+    return times[s][pos[s]];
+  }
+
+  private static void siftUp(int[] heap, int i, long[][] times, int[] pos) {
+    int s = heap[i];
+    long t = key(s, times, pos);
+    while(i>0) {
+      int parent = (i-1) >>> 1;
+      if(key(heap[parent], times, pos)<=t)
+        break;
+      heap[i] = heap[parent];
+      i = parent;
+    }
+    heap[i] = s;
+  }
+
+  private static void siftDown(int[] heap, int size, long[][] times, int[] pos) {
+    if(size==0)
+      return;
+    int i = 0;
+    int s = heap[0];
+    long t = key(s, times, pos);
+    while(true) {
+      int child = 2*i+1;
+      if(child>=size)
+        break;
+      if(child+1<size && key(heap[child+1], times, pos)<key(heap[child], times, pos))
+        child++;
+      if(key(heap[child], times, pos)>=t)
+        break;
+      heap[i] = heap[child];
+      i = child;
+    }
+    heap[i] = s;
+  }
+
+  /**
+   * Returns the number of rows
+   */
+  public int size() {
+    return time.length;
+  }
+
+  /**
+   * Returns the number of datasets
+   */
+  public int getDataSetCount() {
+    return sets.length;
+  }
+
+  /**
+   * Returns a source dataset
+   * @param s Dataset index
+   */
+  public HdbDataSet getDataSet(int s) {
+    return sets[s];
+  }
+
+  /**
+   * Returns the signal info of a dataset
+   * @param s Dataset index
+   */
+  public SignalInfo getSigInfo(int s) {
+    return sets[s].getSigInfo();
+  }
+
+  /**
+   * Returns the time of a row (us since epoch)
+   * @param row Row index
+   */
+  public long getTime(int row) {
+    return time[row];
+  }
+
+  /** Returns the row timestamps. The internal array is returned (no copy), it must not be modified. */
+  public long[] getDataTimeArray() {
+    return time;
+  }
+
+  /**
+   * Returns the sample of a dataset at the given row, null if there is no sample
+   * @param s Dataset index
+   * @param row Row index
+   */
+  public HdbData get(int s, int row) {
+    int j = index[s][row];
+    return (j<0) ? null : sets[s].get(j);
+  }
+
+  /** Returns the read values of a dataset by row, for scalar and numerical type only.
+   * If there is no sample or if the sample has failed, Double.NaN is returned.
+   * @param s Dataset index
+   * @throws HdbFailed If the type cannot be converted or is not a scalar type
+   */
+  public double[] getValueAsDoubleArray(int s) throws HdbFailed {
+    return toDoubleArray(s, false);
+  }
+
+  /** Returns the write values of a dataset by row, for scalar and numerical type only.
+   * If there is no sample or if the sample has failed, Double.NaN is returned.
+   * @param s Dataset index
+   * @throws HdbFailed If the type cannot be converted or is not a scalar type
+   */
+  public double[] getWriteValueAsDoubleArray(int s) throws HdbFailed {
+    return toDoubleArray(s, true);
+  }
+
+  private double[] toDoubleArray(int s, boolean write) throws HdbFailed {
+
+    SignalInfo info = getSigInfo(s);
+    if(info.isArray())
+      throw new HdbFailed("Not a scalar type ");
+    if(!info.isNumeric())
+      throw new HdbFailed("Not a numerical type ");
+
+    double[] ret = new double[time.length];
+    int prev = -1;
+    double v = Double.NaN;
+    for(int r=0;r<time.length;r++) {
+      int j = index[s][r];
+      // Filled rows repeat the same sample
+      if(j!=prev) {
+        prev = j;
+        HdbData d = (j<0) ? null : sets[s].get(j);
+        if(d==null || d.hasFailed())
+          v = Double.NaN;
+        else
+          v = write ? d.getWriteValueAsDouble() : d.getValueAsDouble();
+      }
+      ret[r] = v;
+    }
+    return ret;
+
+  }
+
+  /**
+   * Returns one dataset per signal with one sample per row, the sample time being the row
+   * time. Samples are copied only when they are repeated or when their time differs from
+   * the row time. Rows without sample are skipped.
+   * @throws HdbFailed In case of failure
+   */
+  public HdbDataSet[] toDataSets() throws HdbFailed {
+
+    HdbDataSet[] ret = new HdbDataSet[sets.length];
+    for(int s=0;s<sets.length;s++) {
+      ArrayList<HdbData> data = new ArrayList<HdbData>(time.length);
+      for(int r=0;r<time.length;r++) {
+        int j = index[s][r];
+        if(j<0)
+          continue;
+        HdbData d = sets[s].get(j);
+        if(d.getDataTime()!=time[r]) {
+          d = d.copy();
+          d.setDataTime(time[r]);
+        }
+        data.add(d);
+      }
+      ret[s] = new HdbDataSet(data);
+      ret[s].setSigInfo(sets[s].getSigInfo());
+    }
+    return ret;
+
+  }
+
+}
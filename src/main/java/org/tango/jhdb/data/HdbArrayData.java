@@ -77,6 +77,33 @@ public abstract class HdbArrayData extends HdbData
     throw new HdbFailed("This datum is not scalar");
   }
 
+  /**
+   * Sets read and write values of a floating point array datum.
+   * Arrays are not copied. The write value is ignored if null.
+   * @throws HdbFailed If this datum is not a floating point array
+   */
+  public void setDoubleArray(double[] r, double[] w) throws HdbFailed {
+    throw new HdbFailed("Cannot set a " + info.dataType + " array from double[]");
+  }
+
+  /**
+   * Sets read and write values of an integer array datum.
+   * The write value is ignored if null.
+   * @throws HdbFailed If this datum is not an integer array
+   */
+  public void setLongArray(long[] r, long[] w) throws HdbFailed {
+    throw new HdbFailed("Cannot set a " + info.dataType + " array from long[]");
+  }
+
+  /**
+   * Sets read and write values of a boolean array datum.
+   * Arrays are not copied. The write value is ignored if null.
+   * @throws HdbFailed If this datum is not a boolean array
+   */
+  public void setBooleanArray(boolean[] r, boolean[] w) throws HdbFailed {
+    throw new HdbFailed("Cannot set a " + info.dataType + " array from boolean[]");
+  }
+
   public Map<Aggregate, List<Number>> getAggregate() throws HdbFailed
   {
     return EMPTY_AGGREGATE;
@@ -96,6 +96,14 @@ public class HdbBoolean extends HdbScalarData {
 
   }
 
+  @Override
+  public void setBoolean(boolean r, boolean w) {
+
+    this.value = r;
+    this.wvalue = w;
+
+  }
+
   public void parseValue(ArrayList<Object> value) throws HdbFailed {
 
     this.value = parseBoolean(value.get(0));
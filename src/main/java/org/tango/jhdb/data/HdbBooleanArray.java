@@ -82,6 +82,14 @@ public class HdbBooleanArray extends HdbArrayData {
 
   }
 
+  public void setBooleanArray(boolean[] r, boolean[] w) {
+
+    this.value = r;
+    if(w!=null)
+      this.wvalue = w;
+
+  }
+
   public void parseValue(ArrayList<Object> value) throws HdbFailed {
 
     this.value = parseBooleanArray(value);
@@ -95,6 +95,14 @@ public class HdbByte extends HdbScalarData {
 
   }
 
+  @Override
+  public void setLong(long r, long w) {
+
+    this.value = (byte)r;
+    this.wvalue = (byte)w;
+
+  }
+
   public void parseValue(ArrayList<Object> value) throws HdbFailed {
 
     this.value = parseByte(value.get(0));
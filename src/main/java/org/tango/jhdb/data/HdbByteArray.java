@@ -82,6 +82,19 @@ public class HdbByteArray extends HdbArrayData {
 
   }
 
+  public void setLongArray(long[] r, long[] w) {
+
+    this.value = new byte[r.length];
+    for(int i=0;i<r.length;i++)
+      this.value[i] = (byte)r[i];
+    if(w!=null) {
+      this.wvalue = new byte[w.length];
+      for(int i=0;i<w.length;i++)
+        this.wvalue[i] = (byte)w[i];
+    }
+
+  }
+
   public void parseValue(ArrayList<Object> value) throws HdbFailed {
 
     this.value = parseByteArray(value);
@@ -259,6 +259,26 @@ public abstract class HdbData {
   public void parse(long data_time,long recv_time,long insert_time,String error_desc,int quality,
                     ArrayList<Object> value_r,ArrayList<Object> value_w) throws HdbFailed {
 
+    parseHeader(data_time, recv_time, insert_time, error_desc, quality);
+
+    if(!hasFailed()) {
+      parseValue(value_r);
+      parseWriteValue(value_w.isEmpty() ? null : value_w);
+    }
+
+  }
+
+  /**
+   * Parse timestamps, error and quality. For scalar data, the value can then be set
+   * with the typed setters of HdbScalarData (no boxing).
+   * @param data_time Tango timestamp
+   * @param recv_time Event recieve timestamp
+   * @param insert_time Recording timestamp
+   * @param error_desc Error string
+   * @param quality Quality value
+   */
+  public void parseHeader(long data_time,long recv_time,long insert_time,String error_desc,int quality) {
+
     dataTime = data_time;
     recvTime = recv_time;
     insertTime = insert_time;
@@ -268,11 +288,6 @@ public abstract class HdbData {
     errorMessage = error_desc;
     qualityFactor = quality;
 
-    if(!hasFailed()) {
-      parseValue(value_r);
-      parseWriteValue(value_w.isEmpty() ? null : value_w);
-    }
-
   }
 
   public void parseAggregate(long dTime, long count_rows, long count_errors
@@ -0,0 +1,84 @@
+//+======================================================================
+// $Source: $
+//
+// Project:   Tango
+//
+// Description:  java source code for HDB extraction library.
+//
+// $Author: pons $
+//
+// Copyright (C) :      2015
+//						European Synchrotron Radiation Facility
+//                      BP 220, Grenoble 38043
+//                      FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision $
+//
+//-======================================================================
+package org.tango.jhdb.data;
+
+import org.tango.jhdb.SignalInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A chunk of consecutive samples of a signal, emitted by an HdbDataPublisher
+ */
+public class HdbDataChunk {
+
+  private final SignalInfo info;
+  private final ArrayList<HdbData> data;
+
+  public HdbDataChunk(SignalInfo info, ArrayList<HdbData> data) {
+    this.info = info;
+    this.data = data;
+  }
+
+  /**
+   * Returns the signal of this chunk
+   */
+  public SignalInfo getSigInfo() {
+    return info;
+  }
+
+  /**
+   * Returns the samples of this chunk (ordered by time)
+   */
+  public List<HdbData> getData() {
+    return Collections.unmodifiableList(data);
+  }
+
+  /**
+   * Returns the number of samples
+   */
+  public int size() {
+    return data.size();
+  }
+
+  /**
+   * Returns the samples as a data set
+   */
+  public HdbDataSet toDataSet() {
+    HdbDataSet ret = new HdbDataSet(new ArrayList<HdbData>(data));
+    ret.setSigInfo(info);
+    return ret;
+  }
+
+}
@@ -122,14 +122,8 @@ public class HdbDataSet extends ArrayList<HdbData> {
    */
   public void removeHasFailed() {
 
-    int i = 0;
-    while(i<size()) {
-      HdbData d = get(i);
-      if(d.hasFailed())
-        remove(i);
-      else
-        i++;
-    }
+    // Single compaction pass
+    removeIf(HdbData::hasFailed);
 
   }
 
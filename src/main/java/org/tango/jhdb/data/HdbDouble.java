@@ -94,6 +94,14 @@ public class HdbDouble extends HdbScalarData {
 
   }
 
+  @Override
+  public void setDouble(double r, double w) {
+
+    this.value = r;
+    this.wvalue = w;
+
+  }
+
   public void parseValue(ArrayList<Object> value) throws HdbFailed {
 
     this.value = parseDouble(value.get(0));
@@ -82,6 +82,14 @@ public class HdbDoubleArray extends HdbArrayData {
 
   }
 
+  public void setDoubleArray(double[] r, double[] w) {
+
+    this.value = r;
+    if(w!=null)
+      this.wvalue = w;
+
+  }
+
   public void parseValue(ArrayList<Object> value) throws HdbFailed {
 
     this.value = parseDoubleArray(value);
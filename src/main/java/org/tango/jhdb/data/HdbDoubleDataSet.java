@@ -0,0 +1,295 @@
+//+======================================================================
+// $Source: $
+//
+// Project:   Tango
+//
+// Description:  java source code for HDB extraction library.
+//
+// $Author: pons $
+//
+// Copyright (C) :      2015
+//						European Synchrotron Radiation Facility
+//                      BP 220, Grenoble 38043
+//                      FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision $
+//
+//-======================================================================
+package org.tango.jhdb.data;
+
+import org.tango.jhdb.HdbFailed;
+import org.tango.jhdb.SignalInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Columnar set of HDB data for scalar floating point signals (DOUBLE or FLOAT).
+ * Samples are stored in primitive arrays instead of one HdbData per sample.
+ * Failed samples have a Double.NaN value, ATTR_INVALID samples keep the values read
+ * (see getQualityArray()).
+ */
+public class HdbDoubleDataSet {
+
+  private final static int DEFAULT_CAPACITY = 1024;
+
+  SignalInfo info;
+  private int size = 0;
+  private long[] dataTime;
+  private double[] value;
+  private double[] wvalue;
+  private byte[] quality;
+  // Error message of failed samples, by sample index
+  private final HashMap<Integer, String> errors = new HashMap<Integer, String>();
+
+  /**
+   * Construct an empty HdbDoubleDataSet
+   * @param info Signal info (scalar DOUBLE or FLOAT)
+   */
+  public HdbDoubleDataSet(SignalInfo info) {
+    this(info, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Construct an empty HdbDoubleDataSet
+   * @param info Signal info (scalar DOUBLE or FLOAT)
+   * @param capacity Initial capacity
+   */
+  public HdbDoubleDataSet(SignalInfo info, int capacity) {
+    this.info = info;
+    capacity = Math.max(capacity, 16);
+    dataTime = new long[capacity];
+    value = new double[capacity];
+    if (info.isRW() || info.access == SignalInfo.Access.WO)
+      wvalue = new double[capacity];
+    quality = new byte[capacity];
+  }
+
+  /**
+   * Get the signal info of this dataset
+   */
+  public SignalInfo getSigInfo() {
+    return info;
+  }
+
+  /**
+   * Get the name of this dataset
+   */
+  public String getName() {
+    return info.name;
+  }
+
+  /**
+   * Returns the number of samples
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns true if this dataset has no sample
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Returns true whether this dataset has write values
+   */
+  public boolean hasWriteValue() {
+    return wvalue != null;
+  }
+
+  /**
+   * Adds a sample
+   * @param time Tango timestamp (us since epoch)
+   * @param v Read value
+   * @param w Write value (ignored if the signal is read only)
+   * @param q Quality value
+   * @param error Error message (null or empty if the sample has not failed)
+   */
+  public void add(long time, double v, double w, int q, String error) {
+
+    if (size == dataTime.length)
+      grow();
+
+    boolean failed = (error != null) && !error.isEmpty();
+    dataTime[size] = time;
+    value[size] = failed ? Double.NaN : v;
+    if (wvalue != null)
+      wvalue[size] = failed ? Double.NaN : w;
+    quality[size] = (byte) q;
+    if (failed)
+      errors.put(size, error);
+    size++;
+
+  }
+
+  /**
+   * Adds a sample
+   * @param d Scalar data
+   * @throws HdbFailed If the data cannot be converted
+   */
+  public void add(HdbData d) throws HdbFailed {
+
+    // Values are taken as read, getValueAsDouble() returns NaN for ATTR_INVALID samples
+    if (d.hasFailed())
+      add(d.getDataTime(), Double.NaN, Double.NaN, d.getQualityFactor(), d.getErrorMessage());
+    else if (d instanceof HdbDouble)
+      add(d.getDataTime(), ((HdbDouble) d).getValue(), ((HdbDouble) d).getWriteValue(), d.getQualityFactor(), null);
+    else if (d instanceof HdbFloat)
+      add(d.getDataTime(), ((HdbFloat) d).getValue(), ((HdbFloat) d).getWriteValue(), d.getQualityFactor(), null);
+    else
+      add(d.getDataTime(), d.getValueAsDouble(),
+          d.hasWriteValue() ? d.getWriteValueAsDouble() : Double.NaN,
+          d.getQualityFactor(), null);
+
+  }
+
+  /**
+   * Returns the timestamp (us since epoch) of the given sample
+   */
+  public long getDataTime(int i) {
+    return dataTime[i];
+  }
+
+  /**
+   * Returns the read value of the given sample
+   */
+  public double getValue(int i) {
+    return value[i];
+  }
+
+  /**
+   * Returns the write value of the given sample
+   */
+  public double getWriteValue(int i) {
+    return (wvalue != null) ? wvalue[i] : Double.NaN;
+  }
+
+  /**
+   * Returns the quality factor of the given sample
+   */
+  public int getQualityFactor(int i) {
+    return quality[i];
+  }
+
+  /**
+   * Returns true if the given sample has failed
+   */
+  public boolean hasFailed(int i) {
+    return errors.containsKey(i);
+  }
+
+  /**
+   * Returns the error message of the given sample, null if it has not failed
+   */
+  public String getErrorMessage(int i) {
+    return errors.get(i);
+  }
+
+  /**
+   * Returns the number of failed samples
+   */
+  public int getErrorCount() {
+    return errors.size();
+  }
+
+  /**
+   * Releases unused capacity
+   */
+  public void trimToSize() {
+
+    if (size == dataTime.length)
+      return;
+    dataTime = Arrays.copyOf(dataTime, size);
+    value = Arrays.copyOf(value, size);
+    if (wvalue != null)
+      wvalue = Arrays.copyOf(wvalue, size);
+    quality = Arrays.copyOf(quality, size);
+
+  }
+
+  /** Returns all timestamps of this dataset. The internal array is returned (no copy), it must not be modified. */
+  public long[] getDataTimeArray() {
+    trimToSize();
+    return dataTime;
+  }
+
+  /** Returns all read values of this dataset. The internal array is returned (no copy), it must not be modified.
+   * If a data has failed, Double.NaN is returned.
+   */
+  public double[] getValueAsDoubleArray() {
+    trimToSize();
+    return value;
+  }
+
+  /** Returns all write values of this dataset. The internal array is returned (no copy), it must not be modified.
+   * If a data has failed, Double.NaN is returned.
+   * @throws HdbFailed If the signal has no write value
+   */
+  public double[] getWriteValueAsDoubleArray() throws HdbFailed {
+    if (wvalue == null)
+      throw new HdbFailed("No write value");
+    trimToSize();
+    return wvalue;
+  }
+
+  /** Returns all quality factors of this dataset. The internal array is returned (no copy), it must not be modified. */
+  public byte[] getQualityArray() {
+    trimToSize();
+    return quality;
+  }
+
+  /**
+   * Converts this dataset to a HdbDataSet (one HdbData per sample)
+   * @throws HdbFailed In case of failure
+   */
+  public HdbDataSet toDataSet() throws HdbFailed {
+
+    boolean isFloat = info.dataType == SignalInfo.Type.FLOAT;
+    ArrayList<HdbData> data = new ArrayList<HdbData>(size);
+    for (int i = 0; i < size; i++) {
+      double w = getWriteValue(i);
+      HdbData d = isFloat ? new HdbFloat(info, (float) value[i], (float) w) : new HdbDouble(info, value[i], w);
+      d.dataTime = dataTime[i];
+      d.qualityFactor = quality[i];
+      d.errorMessage = errors.get(i);
+      data.add(d);
+    }
+    HdbDataSet ret = new HdbDataSet(data);
+    ret.setSigInfo(info);
+    return ret;
+
+  }
+
+  private void grow() {
+
+    // Arrays may have been trimmed to 0 or 1 element
+    int len = dataTime.length;
+    int capacity = Math.max(size + 1, Math.max(16, len + (len >> 1)));
+    dataTime = Arrays.copyOf(dataTime, capacity);
+    value = Arrays.copyOf(value, capacity);
+    if (wvalue != null)
+      wvalue = Arrays.copyOf(wvalue, capacity);
+    quality = Arrays.copyOf(quality, capacity);
+
+  }
+
+}
@@ -94,6 +94,14 @@ public class HdbFloat extends HdbScalarData {
 
   }
 
+  @Override
+  public void setDouble(double r, double w) {
+
+    this.value = (float)r;
+    this.wvalue = (float)w;
+
+  }
+
   public void parseValue(ArrayList<Object> value) throws HdbFailed {
 
     this.value = parseFloat(value.get(0));
@@ -82,6 +82,19 @@ public class HdbFloatArray extends HdbArrayData {
 
   }
 
+  public void setDoubleArray(double[] r, double[] w) {
+
+    this.value = new float[r.length];
+    for(int i=0;i<r.length;i++)
+      this.value[i] = (float)r[i];
+    if(w!=null) {
+      this.wvalue = new float[w.length];
+      for(int i=0;i<w.length;i++)
+        this.wvalue[i] = (float)w[i];
+    }
+
+  }
+
   public void parseValue(ArrayList<Object> value) throws HdbFailed {
 
     this.value = parseFloatArray(value);
@@ -91,6 +91,14 @@ public class HdbLong extends HdbScalarData {
 
   }
 
+  @Override
+  public void setLong(long r, long w) {
+
+    this.value = (int)r;
+    this.wvalue = (int)w;
+
+  }
+
   public void parseValue(ArrayList<Object> value) throws HdbFailed {
 
     this.value = parseLong(value.get(0));
@@ -95,6 +95,14 @@ public class HdbLong64 extends HdbScalarData {
 
   }
 
+  @Override
+  public void setLong(long r, long w) {
+
+    this.value = r;
+    this.wvalue = w;
+
+  }
+
   public void parseValue(ArrayList<Object> value) throws HdbFailed {
 
     this.value = parseLong64(value.get(0));
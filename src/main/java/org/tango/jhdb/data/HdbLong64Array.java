@@ -50,6 +50,14 @@ public class HdbLong64Array extends HdbArrayData {
 
   }
 
+  public void setLongArray(long[] r, long[] w) {
+
+    this.value = r;
+    if(w!=null)
+      this.wvalue = w;
+
+  }
+
   public void parseValue(ArrayList<Object> value) throws HdbFailed {
 
     this.value = parseLong64Array(value);
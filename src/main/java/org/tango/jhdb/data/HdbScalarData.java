@@ -95,6 +95,46 @@ public abstract class HdbScalarData extends HdbData {
     throw new HdbFailed("This datum is not an integer");
   }
 
+  /**
+   * Sets read and write values of a floating point datum.
+   * The write value is always stored, it is the setpoint of RW and WO signals
+   * (readers pass NaN for read only signals).
+   * @throws HdbFailed If this datum is not a floating point datum
+   */
+  public void setDouble(double r, double w) throws HdbFailed {
+    throw new HdbFailed("Cannot set a " + info.dataType + " datum from double");
+  }
+
+  /**
+   * Sets read and write values of an integer datum.
+   * The write value is always stored, it is the setpoint of RW and WO signals
+   * (readers pass 0 for read only signals).
+   * @throws HdbFailed If this datum is not an integer datum
+   */
+  public void setLong(long r, long w) throws HdbFailed {
+    throw new HdbFailed("Cannot set a " + info.dataType + " datum from long");
+  }
+
+  /**
+   * Sets read and write values of a boolean datum.
+   * The write value is always stored, it is the setpoint of RW and WO signals
+   * (readers pass false for read only signals).
+   * @throws HdbFailed If this datum is not a boolean datum
+   */
+  public void setBoolean(boolean r, boolean w) throws HdbFailed {
+    throw new HdbFailed("Cannot set a " + info.dataType + " datum from boolean");
+  }
+
+  /**
+   * Sets read and write values of a string datum.
+   * A null write value is stored as "NULL", except for read only signals
+   * which keep an empty write value.
+   * @throws HdbFailed If this datum is not a string datum
+   */
+  public void setString(String r, String w) throws HdbFailed {
+    throw new HdbFailed("Cannot set a " + info.dataType + " datum from String");
+  }
+
   public Map<Aggregate, List<Number>> getAggregate() throws HdbFailed
   {
     return EMPTY_AGGREGATE;
@@ -95,6 +95,14 @@ public class HdbShort extends HdbScalarData {
 
   }
 
+  @Override
+  public void setLong(long r, long w) {
+
+    this.value = (short)r;
+    this.wvalue = (short)w;
+
+  }
+
   public void parseValue(ArrayList<Object> value) throws HdbFailed {
 
     this.value = parseShort(value.get(0));
@@ -89,6 +89,14 @@ public class HdbState extends HdbScalarData {
 
   }
 
+  @Override
+  public void setLong(long r, long w) {
+
+    this.value = (int)r;
+    this.wvalue = (int)w;
+
+  }
+
   public void parseValue(ArrayList<Object> value) throws HdbFailed {
 
     this.value = parseState(value.get(0));
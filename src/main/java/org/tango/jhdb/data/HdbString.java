@@ -95,6 +95,18 @@ public class HdbString extends HdbScalarData {
 
   }
 
+  @Override
+  public void setString(String r, String w) {
+
+    this.value = (r==null) ? "NULL" : r;
+    // Readers give a null write value for read only signals
+    if(w!=null)
+      this.wvalue = w;
+    else if(info.access!=SignalInfo.Access.RO)
+      this.wvalue = "NULL";
+
+  }
+
   public void parseValue(ArrayList<Object> value) throws HdbFailed {
 
     String str = (String)value.get(0);
@@ -89,6 +89,14 @@ public class HdbUChar extends HdbScalarData {
 
   }
 
+  @Override
+  public void setLong(long r, long w) {
+
+    this.value = (short)r;
+    this.wvalue = (short)w;
+
+  }
+
   public void parseValue(ArrayList<Object> value) throws HdbFailed {
 
     this.value = parseUChar(value.get(0));
@@ -77,6 +77,19 @@ public class HdbUCharArray extends HdbArrayData {
 
   }
 
+  public void setLongArray(long[] r, long[] w) {
+
+    this.value = new short[r.length];
+    for(int i=0;i<r.length;i++)
+      this.value[i] = (short)r[i];
+    if(w!=null) {
+      this.wvalue = new short[w.length];
+      for(int i=0;i<w.length;i++)
+        this.wvalue[i] = (short)w[i];
+    }
+
+  }
+
   public void parseValue(ArrayList<Object> value) throws HdbFailed {
 
     this.value = parseShortArray(value);
@@ -77,6 +77,14 @@ public class HdbULongArray extends HdbArrayData {
 
   }
 
+  public void setLongArray(long[] r, long[] w) {
+
+    this.value = r;
+    if(w!=null)
+      this.wvalue = w;
+
+  }
+
   public void parseValue(ArrayList<Object> value) throws HdbFailed {
 
     this.value = parseULongArray(value);
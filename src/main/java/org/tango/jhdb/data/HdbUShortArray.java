@@ -77,6 +77,19 @@ public class HdbUShortArray extends HdbArrayData {
 
   }
 
+  public void setLongArray(long[] r, long[] w) {
+
+    this.value = new int[r.length];
+    for(int i=0;i<r.length;i++)
+      this.value[i] = (int)r[i];
+    if(w!=null) {
+      this.wvalue = new int[w.length];
+      for(int i=0;i<w.length;i++)
+        this.wvalue[i] = (int)w[i];
+    }
+
+  }
+
   public void parseValue(ArrayList<Object> value) throws HdbFailed {
 
     this.value = parseUShortArray(value);